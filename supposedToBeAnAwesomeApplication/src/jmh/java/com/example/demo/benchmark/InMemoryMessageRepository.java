@@ -0,0 +1,233 @@
+package com.example.demo.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+
+import com.example.demo.dl.MessageEntity;
+import com.example.demo.dl.MessageRepository;
+
+/**
+ * Stand-in of MessageRepository keeping message entities in memory, used by the
+ * benchmarks to measure the application code without the database.
+ *
+ * @author serhii.shvets
+ *
+ */
+public class InMemoryMessageRepository implements MessageRepository {
+
+	/**
+	 * Increment of the stand-in of messages_m_id_seq sequence.
+	 */
+	public static final int ID_BLOCK_SIZE = 50;
+
+	private final ConcurrentSkipListMap<Long, MessageEntity> messages = new ConcurrentSkipListMap<Long, MessageEntity>();
+	private final AtomicLong idSequence = new AtomicLong(1 - ID_BLOCK_SIZE);
+
+	/**
+	 * Fills the repository with message entities with IDs from 1 to count.
+	 *
+	 * @param count - number of message entities.
+	 * @return this repository.
+	 */
+	public InMemoryMessageRepository fill(int count) {
+		for (long i = 1; i <= count; i++) {
+			MessageEntity message = new MessageEntity();
+			message.setMesId(i);
+			message.setText("Text of message number " + i);
+			message.setGrId(1L);
+			message.setDate();
+			message.setVersion(0L);
+			messages.put(i, message);
+		}
+		return this;
+	}
+
+	@Override
+	public <S extends MessageEntity> S save(S entity) {
+		entity.setVersion((entity.getVersion() != null) ? entity.getVersion() + 1 : 0L);
+		messages.put(entity.getMesId(), entity);
+		return entity;
+	}
+
+	@Override
+	public <S extends MessageEntity> Iterable<S> saveAll(Iterable<S> entities) {
+		entities.forEach(this::save);
+		return entities;
+	}
+
+	@Override
+	public Optional<MessageEntity> findById(Long id) {
+		return Optional.ofNullable(messages.get(id));
+	}
+
+	@Override
+	public boolean existsById(Long id) {
+		return messages.containsKey(id);
+	}
+
+	@Override
+	public Iterable<MessageEntity> findAll() {
+		return new ArrayList<MessageEntity>(messages.values());
+	}
+
+	@Override
+	public Iterable<MessageEntity> findAllById(Iterable<Long> ids) {
+		List<MessageEntity> result = new ArrayList<MessageEntity>();
+		ids.forEach(id -> findById(id).ifPresent(result::add));
+		return result;
+	}
+
+	@Override
+	public long count() {
+		return messages.size();
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		messages.remove(id);
+	}
+
+	@Override
+	public void delete(MessageEntity entity) {
+		messages.remove(entity.getMesId());
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends MessageEntity> entities) {
+		entities.forEach(this::delete);
+	}
+
+	@Override
+	public void deleteAll() {
+		messages.clear();
+	}
+
+	@Override
+	public Stream<MessageEntity> streamAll() {
+		return messages.values().stream();
+	}
+
+	@Override
+	public Stream<MessageEntity> streamAll(Pageable pageable) {
+		return messages.values().stream().skip(pageable.getOffset()).limit(pageable.getPageSize());
+	}
+
+	@Override
+	public List<MessageEntity> findPageAfter(Long afterId, Pageable pageable) {
+		return messages.tailMap(afterId, false).values().stream().limit(pageable.getPageSize())
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<MessageEntity> streamGroup(Long grId) {
+		return messages.values().stream().filter(message -> grId.equals(message.getGrId()));
+	}
+
+	@Override
+	public Stream<MessageEntity> streamDateRange(LocalDateTime from, LocalDateTime to) {
+		return messages.values().stream()
+				.filter(message -> !message.getDate().isBefore(from) && message.getDate().isBefore(to))
+				.sorted(Comparator.comparing(MessageEntity::getDate));
+	}
+
+	@Override
+	public Stream<MessageEntity> streamGroupDateRange(Long grId, LocalDateTime from, LocalDateTime to) {
+		return streamDateRange(from, to).filter(message -> grId.equals(message.getGrId()));
+	}
+
+	@Override
+	public List<MessageEntity> findDateRangePageAfter(LocalDateTime from, LocalDateTime to, LocalDateTime afterDate,
+			Long afterId, Pageable pageable) {
+		return streamDateRange(from, to).filter(message -> isAfter(message, afterDate, afterId))
+				.limit(pageable.getPageSize()).collect(Collectors.toList());
+	}
+
+	@Override
+	public List<MessageEntity> findGroupDateRangePageAfter(Long grId, LocalDateTime from, LocalDateTime to,
+			LocalDateTime afterDate, Long afterId, Pageable pageable) {
+		return streamGroupDateRange(grId, from, to).filter(message -> isAfter(message, afterDate, afterId))
+				.limit(pageable.getPageSize()).collect(Collectors.toList());
+	}
+
+	private boolean isAfter(MessageEntity message, LocalDateTime afterDate, Long afterId) {
+		return message.getDate().isAfter(afterDate)
+				|| message.getDate().isEqual(afterDate) && message.getMesId() > afterId;
+	}
+
+	@Override
+	public List<MessageEntity> findGroupPageAfter(Long grId, Long afterId, Pageable pageable) {
+		return messages.tailMap(afterId, false).values().stream().filter(message -> grId.equals(message.getGrId()))
+				.limit(pageable.getPageSize()).collect(Collectors.toList());
+	}
+
+	@Override
+	public long countGroupMessages(Long grId) {
+		return streamGroup(grId).count();
+	}
+
+	@Override
+	public List<Long> findExistingIds(Collection<Long> ids) {
+		return ids.stream().filter(messages::containsKey).collect(Collectors.toList());
+	}
+
+	@Override
+	public Optional<MessageEntity> findByIdForUpdate(Long id) {
+		// the entities are replaced, not changed, so there is nothing to lock
+		return findById(id);
+	}
+
+	@Override
+	public int insertIfAbsent(Long id, String text, Long grId, LocalDateTime date) {
+		return (messages.putIfAbsent(id, createMessageEntity(id, text, grId, date, 0L)) == null) ? 1 : 0;
+	}
+
+	@Override
+	public int updateTextIfExisting(Long id, String text) {
+		return (messages.computeIfPresent(id, (key, old) -> createMessageEntity(id, text, old.getGrId(),
+				old.getDate(), old.getVersion() + 1)) != null) ? 1 : 0;
+	}
+
+	@Override
+	public int updateTextIfVersion(Long id, String text, Long version) {
+		boolean[] updated = new boolean[1];
+		messages.computeIfPresent(id, (key, old) -> {
+			if (!old.getVersion().equals(version)) {
+				return old;
+			}
+			updated[0] = true;
+			return createMessageEntity(id, text, old.getGrId(), old.getDate(), version + 1);
+		});
+		return updated[0] ? 1 : 0;
+	}
+
+	@Override
+	public int deleteIfExisting(Long id) {
+		return (messages.remove(id) != null) ? 1 : 0;
+	}
+
+	@Override
+	public long nextIdBlock() {
+		return idSequence.addAndGet(ID_BLOCK_SIZE);
+	}
+
+	private MessageEntity createMessageEntity(Long id, String text, Long grId, LocalDateTime date, Long version) {
+		MessageEntity message = new MessageEntity();
+		message.setMesId(id);
+		message.setText(text);
+		message.setGrId(grId);
+		message.setM_date(date);
+		message.setVersion(version);
+		return message;
+	}
+
+}
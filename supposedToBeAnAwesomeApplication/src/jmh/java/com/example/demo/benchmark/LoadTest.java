@@ -0,0 +1,86 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * HTTP load test of a running application, used to compare throughput of the
+ * default and <i>virtual-threads</i> execution modes. For every provided number
+ * of connections the test keeps that many connections busy with GET requests
+ * of provided URL for provided number of seconds and prints the number of
+ * responses per second, the mean latency and the number of failed requests.
+ * <p>
+ * Arguments: URL, comma separated numbers of connections, seconds per step.
+ * Open files limit of the shell (ulimit -n) has to be higher than the number
+ * of connections, both for the test and for the application.
+ *
+ * @author serhii.shvets
+ *
+ */
+public class LoadTest {
+
+	public static void main(String[] args) {
+		String url = (args.length > 0) ? args[0] : "http://localhost:8080/Message/1";
+		String[] steps = ((args.length > 1) ? args[1] : "1000,5000,10000").split(",");
+		long seconds = (args.length > 2) ? Long.parseLong(args[2]) : 30;
+		((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+		System.out.printf("%-12s %12s %16s %10s%n", "connections", "responses/s", "mean latency ms", "errors");
+		for (String step : steps) {
+			int connections = Integer.parseInt(step.trim());
+			run(url, connections, seconds);
+		}
+	}
+
+	private static void run(String url, int connections, long seconds) {
+		ConnectionProvider provider = ConnectionProvider.fixed("load-test", connections, 60_000);
+		HttpClient client = HttpClient.create(provider);
+		LongAdder responses = new LongAdder();
+		LongAdder errors = new LongAdder();
+		LongAdder latencyNanos = new LongAdder();
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+		Flux.range(0, connections)
+				.flatMap(i -> request(client, url, responses, errors, latencyNanos)
+						.repeat(() -> System.nanoTime() - deadline < 0), connections)
+				.blockLast(Duration.ofSeconds(seconds + 120));
+
+		double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+		long count = responses.sum();
+		System.out.printf("%-12d %12.0f %16.2f %10d%n", connections, count / elapsedSeconds,
+				(count > 0) ? latencyNanos.sum() / 1e6 / count : 0.0, errors.sum());
+		provider.dispose();
+	}
+
+	private static Mono<Integer> request(HttpClient client, String url, LongAdder responses, LongAdder errors,
+			LongAdder latencyNanos) {
+		return Mono.defer(() -> {
+			long requestStart = System.nanoTime();
+			return client.get().uri(url)
+					.responseSingle((response, body) -> body.asString().defaultIfEmpty("")
+							.thenReturn(response.status().code()))
+					.doOnNext(status -> {
+						latencyNanos.add(System.nanoTime() - requestStart);
+						responses.increment();
+						if (status >= 500) {
+							errors.increment();
+						}
+					}).onErrorResume(e -> {
+						errors.increment();
+						return Mono.empty();
+					});
+		});
+	}
+
+}
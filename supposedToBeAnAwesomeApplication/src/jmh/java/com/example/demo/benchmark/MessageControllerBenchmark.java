@@ -0,0 +1,85 @@
+package com.example.demo.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.bl.MessageService;
+import com.example.demo.sl.MessageController;
+import com.example.demo.sl.MessageTextWriter;
+
+/**
+ * Benchmarks of MessageController listing over N message entities stored in
+ * InMemoryMessageRepository.
+ *
+ * @author serhii.shvets
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageControllerBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	private int messagesCount;
+
+	private InMemoryMessageRepository messageRepository;
+	private MessageService messageService;
+	private MessageController messageController;
+
+	@Setup
+	public void setup() {
+		messageRepository = new InMemoryMessageRepository().fill(messagesCount);
+		messageService = MessageServiceBenchmark.createMessageService(messageRepository);
+		messageController = new MessageController();
+		ReflectionTestUtils.setField(messageController, "messageService", messageService);
+	}
+
+	@Benchmark
+	public ResponseEntity<String> showMessages() {
+		return messageController.showMessages();
+	}
+
+	/**
+	 * Streaming listing as done by MessageController.streamMessages(...), written
+	 * to an output discarding the bytes. Run with -prof gc and divide
+	 * gc.alloc.rate.norm by messagesCount to see allocations per message.
+	 */
+	@Benchmark
+	public int streamMessages() throws IOException {
+		MessageTextWriter writer = new MessageTextWriter(messageService, NullOutputStream.INSTANCE);
+		messageRepository.streamAll().forEach(writer);
+		writer.finish();
+		return writer.getCount();
+	}
+
+	private static final class NullOutputStream extends OutputStream {
+		private static final NullOutputStream INSTANCE = new NullOutputStream();
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.bl.MessageCache;
+import com.example.demo.bl.MessageChangeFeed;
+import com.example.demo.bl.MessageIdAllocator;
+import com.example.demo.bl.MessageLoadCoalescer;
+import com.example.demo.bl.MessageSearchIndex;
+import com.example.demo.bl.MessageService;
+import com.example.demo.dl.MessageEntity;
+
+/**
+ * Benchmarks of MessageService hot paths working on InMemoryMessageRepository.
+ *
+ * @author serhii.shvets
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageServiceBenchmark {
+
+	private MessageService messageService;
+	private MessageEntity message;
+	private StringBuilder buffer = new StringBuilder(256);
+	private int nextId;
+
+	@Setup
+	public void setup() {
+		messageService = createMessageService(new InMemoryMessageRepository().fill(1000));
+		message = messageService.getMessageById(1);
+	}
+
+	/**
+	 * Creates MessageService working on provided repository, with the same
+	 * dependencies as injected by Spring.
+	 *
+	 * @param repository - stand-in of MessageRepository.
+	 * @return MessageService object.
+	 */
+	public static MessageService createMessageService(InMemoryMessageRepository repository) {
+		MessageService messageService = new MessageService();
+		ReflectionTestUtils.setField(messageService, "messageRepository", repository);
+		ReflectionTestUtils.setField(messageService, "messageCache", new MessageCache(10000, 60000));
+		ReflectionTestUtils.setField(messageService, "messageLoads", new MessageLoadCoalescer());
+		ReflectionTestUtils.setField(messageService, "searchIndex", new MessageSearchIndex());
+		ReflectionTestUtils.setField(messageService, "changeFeed", new MessageChangeFeed(1000, 256, 1));
+		ReflectionTestUtils.setField(messageService, "idAllocator",
+				new MessageIdAllocator(repository, InMemoryMessageRepository.ID_BLOCK_SIZE));
+		return messageService;
+	}
+
+	@Benchmark
+	public String getDataFromMessageEntity() {
+		return messageService.getDataFromMessageEntity(message);
+	}
+
+	/**
+	 * Rendering of a single message into a reusable buffer. Run with -prof gc to
+	 * see allocations per message (gc.alloc.rate.norm).
+	 */
+	@Benchmark
+	public StringBuilder appendDataFromMessageEntity() {
+		buffer.setLength(0);
+		return messageService.appendDataFromMessageEntity(message, buffer);
+	}
+
+	@Benchmark
+	public MessageEntity postMessageIfAbsent() {
+		nextId = (nextId % 1000) + 1;
+		return messageService.postMessageIfAbsent(nextId, "Text of posted message", 1);
+	}
+
+	@Benchmark
+	public MessageEntity getMessageById() {
+		nextId = (nextId % 1000) + 1;
+		return messageService.getMessageById(nextId);
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.example.demo;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.stereotype.Component;
+
+/**
+ * Post processor of the bean factory for the <i>faststart</i> profile, making
+ * all singleton beans lazy, so they are created on their first use instead of
+ * during the startup. The first requests are slower in this case, since they
+ * create the controllers, services and repositories they use.
+ * <p>
+ * Beans and bean methods annotated with Lazy explicitly, for example
+ * Lazy(false) for beans which have to be created on startup, and
+ * infrastructure beans of Spring are not changed.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+@Profile("faststart")
+public class LazyInitializationPostProcessor implements BeanFactoryPostProcessor {
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		for (String name : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition definition = beanFactory.getBeanDefinition(name);
+			if (definition.isSingleton() && definition.getRole() != BeanDefinition.ROLE_INFRASTRUCTURE
+					&& !isLazyAnnotated(definition)) {
+				definition.setLazyInit(true);
+			}
+		}
+	}
+
+	private static boolean isLazyAnnotated(BeanDefinition definition) {
+		if (!(definition instanceof AnnotatedBeanDefinition)) {
+			return false;
+		}
+		AnnotatedBeanDefinition annotatedDefinition = (AnnotatedBeanDefinition) definition;
+		AnnotatedTypeMetadata metadata = annotatedDefinition.getFactoryMethodMetadata();
+		return annotatedDefinition.getMetadata().isAnnotated(Lazy.class.getName())
+				|| (metadata != null && metadata.isAnnotated(Lazy.class.getName()));
+	}
+
+}
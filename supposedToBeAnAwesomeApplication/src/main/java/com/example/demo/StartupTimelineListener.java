@@ -0,0 +1,186 @@
+package com.example.demo;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Listener of the startup events, logging the time of every startup phase when
+ * <i>message.startup.timeline</i> is true, as it is in the <i>faststart</i>
+ * profile. The phases are measured from the start of the JVM, so the first one
+ * includes loading of classes before SpringApplication is started.
+ * <p>
+ * The listener also logs beans which took most time to be created, without
+ * time of creation of their dependencies, since they usually are the ones to
+ * be made lazy or removed.
+ * <p>
+ * The listener is registered in META-INF/spring.factories instead of being a
+ * component, since the first events are published before the application
+ * context exists. In case if <i>message.startup.exit-on-ready</i> is true the
+ * application exits once it is ready, which is used for the training run
+ * creating a class data sharing archive.
+ *
+ * @author serhii.shvets
+ *
+ */
+public class StartupTimelineListener implements ApplicationListener<ApplicationEvent> {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StartupTimelineListener.class);
+
+	private static final int SLOWEST_BEANS = 10;
+
+	private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+	private final BeanCreationTimer beanCreationTimer = new BeanCreationTimer();
+
+	private boolean enabled;
+
+	private boolean exitOnReady;
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		if (event instanceof ApplicationStartingEvent) {
+			record("application starting");
+		} else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+			ApplicationEnvironmentPreparedEvent environmentEvent = (ApplicationEnvironmentPreparedEvent) event;
+			enabled = environmentEvent.getEnvironment().getProperty("message.startup.timeline", Boolean.class, false);
+			exitOnReady = environmentEvent.getEnvironment().getProperty("message.startup.exit-on-ready", Boolean.class,
+					false);
+			record("environment prepared");
+		} else if (event instanceof ApplicationContextInitializedEvent) {
+			record("context initialized");
+		} else if (event instanceof ApplicationPreparedEvent) {
+			if (enabled) {
+				((ApplicationPreparedEvent) event).getApplicationContext().getBeanFactory()
+						.addBeanPostProcessor(beanCreationTimer);
+			}
+			record("context prepared");
+		} else if (event instanceof WebServerInitializedEvent) {
+			record("web server started");
+		} else if (event instanceof ContextRefreshedEvent) {
+			record("context refreshed");
+		} else if (event instanceof ApplicationStartedEvent) {
+			record("application started");
+		} else if (event instanceof ApplicationReadyEvent) {
+			record("application ready");
+			beanCreationTimer.stop();
+			if (enabled) {
+				logTimeline();
+			}
+			if (exitOnReady) {
+				log.info("Exiting since message.startup.exit-on-ready is set");
+				System.exit(SpringApplication.exit(((ApplicationReadyEvent) event).getApplicationContext()));
+			}
+		}
+	}
+
+	private void record(String phase) {
+		if (!phases.containsKey(phase)) {
+			phases.put(phase, ManagementFactory.getRuntimeMXBean().getUptime());
+		}
+	}
+
+	private void logTimeline() {
+		long previous = 0;
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			log.info("Startup phase {} took {} ms, {} ms since JVM start", phase.getKey(), phase.getValue() - previous,
+					phase.getValue());
+			previous = phase.getValue();
+		}
+		List<Map.Entry<String, Long>> beans = new ArrayList<Map.Entry<String, Long>>(
+				beanCreationTimer.getCreationNanos().entrySet());
+		beans.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+		StringBuilder slowest = new StringBuilder();
+		for (Map.Entry<String, Long> bean : beans.subList(0, Math.min(SLOWEST_BEANS, beans.size()))) {
+			slowest.append(slowest.length() == 0 ? "" : ", ").append(bean.getKey()).append(' ')
+					.append(TimeUnit.NANOSECONDS.toMillis(bean.getValue())).append(" ms");
+		}
+		log.info("{} beans created during startup, the slowest are: {}", beans.size(), slowest);
+	}
+
+	/**
+	 * Post processor measuring the time between instantiation and the end of
+	 * initialization of every bean, excluding the time of beans created in the
+	 * meantime as its dependencies by the same thread.
+	 */
+	private static class BeanCreationTimer implements InstantiationAwareBeanPostProcessor {
+
+		private final Map<String, Long> creationNanos = new ConcurrentHashMap<String, Long>();
+
+		private final ThreadLocal<Deque<Creation>> creations = ThreadLocal.withInitial(ArrayDeque::new);
+
+		private volatile boolean stopped;
+
+		@Override
+		public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+			if (!stopped) {
+				creations.get().push(new Creation(beanName, System.nanoTime()));
+			}
+			return null;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+			Deque<Creation> stack = creations.get();
+			if (stack.stream().noneMatch(creation -> creation.beanName.equals(beanName))) {
+				return bean;
+			}
+			// creations left by beans which failed to be created are dropped
+			Creation creation = stack.pop();
+			while (!creation.beanName.equals(beanName)) {
+				creation = stack.pop();
+			}
+			long nanos = System.nanoTime() - creation.startNanos;
+			creationNanos.merge(beanName, nanos - creation.dependencyNanos, Long::sum);
+			if (!stack.isEmpty()) {
+				stack.peek().dependencyNanos += nanos;
+			}
+			return bean;
+		}
+
+		void stop() {
+			stopped = true;
+		}
+
+		Map<String, Long> getCreationNanos() {
+			return creationNanos;
+		}
+
+	}
+
+	private static class Creation {
+
+		private final String beanName;
+
+		private final long startNanos;
+
+		private long dependencyNanos;
+
+		Creation(String beanName, long startNanos) {
+			this.beanName = beanName;
+			this.startNanos = startNanos;
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.example.demo.bl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Represents a result of posting a batch of message entities to the database.
+ * 
+ * @author serhii.shvets
+ *
+ */
+@Getter
+public class BatchInsertResult {
+
+	/**
+	 * Number of message entities inserted into the database.
+	 */
+	private int insertedCount;
+
+	/**
+	 * IDs of message entities which were not inserted since message entities with
+	 * the same IDs are already existing, in order of appearance in the batch.
+	 */
+	private final List<Long> conflictingIds = new ArrayList<Long>();
+
+	/**
+	 * The method for registering an inserted message entity.
+	 */
+	public void addInserted() {
+		insertedCount++;
+	}
+
+	/**
+	 * The method for registering a message entity which was not inserted because
+	 * of occupied ID.
+	 * 
+	 * @param id - the occupied ID.
+	 */
+	public void addConflict(Long id) {
+		conflictingIds.add(id);
+	}
+
+	/**
+	 * The method for adding results of another batch to this one.
+	 * 
+	 * @param other - result of another batch.
+	 */
+	public void merge(BatchInsertResult other) {
+		insertedCount += other.insertedCount;
+		conflictingIds.addAll(other.conflictingIds);
+	}
+
+}
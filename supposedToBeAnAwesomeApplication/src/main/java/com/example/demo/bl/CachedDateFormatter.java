@@ -0,0 +1,49 @@
+package com.example.demo.bl;
+
+import java.time.LocalDateTime;
+
+/**
+ * Formatter of LocalDateTime values with the same result as
+ * LocalDateTime.toString(), which caches recently formatted values. Dates of
+ * message entities are truncated to days, so a listing of message entities
+ * contains only a few distinct dates and almost every date is served from the
+ * cache without allocating a new String.
+ * <p>
+ * The cache is a fixed size table of immutable entries, so it is bounded and
+ * safe for concurrent use without locking.
+ * 
+ * @author serhii.shvets
+ *
+ */
+final class CachedDateFormatter {
+
+	private static final int SIZE = 64;
+
+	private final Entry[] entries = new Entry[SIZE];
+
+	/**
+	 * @param date - LocalDateTime value to format.
+	 * @return String equal to date.toString().
+	 */
+	String format(LocalDateTime date) {
+		int slot = date.hashCode() & (SIZE - 1);
+		Entry entry = entries[slot];
+		if (entry != null && entry.date.equals(date)) {
+			return entry.text;
+		}
+		String text = date.toString();
+		entries[slot] = new Entry(date, text);
+		return text;
+	}
+
+	private static final class Entry {
+		private final LocalDateTime date;
+		private final String text;
+
+		private Entry(LocalDateTime date, String text) {
+			this.date = date;
+			this.text = text;
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.example.demo.bl;
+
+/**
+ * Exception thrown by MessageSearchIndex while the index is not built yet, so
+ * the search is not available for a while.
+ *
+ * @author serhii.shvets
+ *
+ */
+public class IndexNotReadyException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param message - the detail message.
+	 */
+	public IndexNotReadyException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.example.demo.bl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dl.MessageEntity;
+
+/**
+ * Bounded in-process cache of MessageEntity objects used by MessageService for
+ * read-through lookups by ID. Entries are evicted in least recently used order
+ * when the maximal size is reached and expire after the configured time to
+ * live.
+ * <p>
+ * Loads which are racing with an invalidation of their entity are not cached:
+ * the caller takes a stamp with startLoad(id) before reading the database and
+ * passes it to put(...), which ignores the entity if it was invalidated in the
+ * meantime. The stamp is kept by an entry of the loaded ID, so invalidations
+ * of other entities do not affect the load, and stamps of failed loads are
+ * evicted like other entries.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageCache {
+
+	private final int maximumSize;
+	private final long timeToLiveNanos;
+
+	private final LinkedHashMap<Long, Entry> entries;
+	private long lastStamp;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * @param maximumSize  - maximal number of cached MessageEntity objects.
+	 * @param timeToLiveMs - time in milliseconds after which a cached
+	 *                     MessageEntity object expires.
+	 */
+	public MessageCache(@Value("${message.cache.maximum-size:10000}") int maximumSize,
+			@Value("${message.cache.time-to-live-ms:60000}") long timeToLiveMs) {
+		this.maximumSize = maximumSize;
+		this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMs);
+		this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * The method for getting a cached MessageEntity object.
+	 *
+	 * @param id - ID of wanted MessageEntity.
+	 * @return cached MessageEntity object, or null in case if there is no such
+	 *         entity in the cache or it has expired.
+	 */
+	public MessageEntity get(Long id) {
+		synchronized (entries) {
+			Entry entry = entries.get(id);
+			boolean expired = entry != null && entry.expiresAt - System.nanoTime() <= 0;
+			if (entry != null && entry.message != null && !expired) {
+				hitCount.increment();
+				return entry.message;
+			}
+			if (expired) {
+				entries.remove(id);
+				countEviction(entry);
+			}
+		}
+		missCount.increment();
+		return null;
+	}
+
+	/**
+	 * The method for taking a stamp before loading a MessageEntity object from the
+	 * database. A stamp taken by a later load of the same ID replaces it.
+	 *
+	 * @param id - ID of MessageEntity to load.
+	 * @return stamp to pass to put(...) method.
+	 */
+	public long startLoad(Long id) {
+		synchronized (entries) {
+			long stamp = ++lastStamp;
+			entries.put(id, new Entry(null, stamp, System.nanoTime() + timeToLiveNanos));
+			evictEldestEntries();
+			return stamp;
+		}
+	}
+
+	/**
+	 * The method for caching a loaded MessageEntity object. The object is not
+	 * cached if the entity was invalidated since the stamp was taken.
+	 *
+	 * @param id      - ID of MessageEntity.
+	 * @param message - MessageEntity object to cache.
+	 * @param stamp   - stamp returned by startLoad(id) method before the load.
+	 */
+	public void put(Long id, MessageEntity message, long stamp) {
+		synchronized (entries) {
+			Entry entry = entries.get(id);
+			if (entry == null || entry.message != null || entry.stamp != stamp) {
+				return;
+			}
+			entries.put(id, new Entry(message, stamp, System.nanoTime() + timeToLiveNanos));
+		}
+	}
+
+	/**
+	 * The method for removing a MessageEntity object from the cache. Has to be
+	 * called after every change of the message entity in the database.
+	 *
+	 * @param id - ID of changed MessageEntity.
+	 */
+	public void invalidate(Long id) {
+		synchronized (entries) {
+			entries.remove(id);
+		}
+	}
+
+	/**
+	 * The method for removing all MessageEntity objects from the cache.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	private void evictEldestEntries() {
+		Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+		while (entries.size() > maximumSize && eldest.hasNext()) {
+			Entry entry = eldest.next().getValue();
+			eldest.remove();
+			countEviction(entry);
+		}
+	}
+
+	private void countEviction(Entry entry) {
+		// stamps of loads are not cached entities
+		if (entry.message != null) {
+			evictionCount.increment();
+		}
+	}
+
+	/**
+	 * @return current number of cached MessageEntity objects, including stamps
+	 *         of running loads.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return number of lookups served from the cache.
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return number of lookups which were not served from the cache.
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * @return number of entries removed because of the size limit or expiration.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	private static final class Entry {
+		// null for a stamp of a running load
+		private final MessageEntity message;
+		private final long stamp;
+		private final long expiresAt;
+
+		private Entry(MessageEntity message, long stamp, long expiresAt) {
+			this.message = message;
+			this.stamp = stamp;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.example.demo.bl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Binder of MessageCache statistics to the meter registry, using the same
+ * meter names as the cache metrics of Micrometer (cache.gets, cache.evictions,
+ * cache.size) with cache tag equal to "messages". Loads of MessageLoadCoalescer
+ * are counted by messages.loads meter with result tag equal to "executed" for
+ * loads sent to the database and "collapsed" for calls which shared a running
+ * load.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageCacheMetrics implements MeterBinder {
+
+	@Autowired
+	private MessageCache messageCache;
+
+	@Autowired
+	private MessageLoadCoalescer messageLoads;
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("cache.gets", messageCache, MessageCache::getHitCount).tag("cache", "messages")
+				.tag("result", "hit").description("The number of times cache lookup methods have returned a cached value.")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", messageCache, MessageCache::getMissCount).tag("cache", "messages")
+				.tag("result", "miss").description("The number of times cache lookup methods have not returned a value.")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", messageCache, MessageCache::getEvictionCount)
+				.tag("cache", "messages").description("The number of times the cache was evicted.").register(registry);
+		Gauge.builder("cache.size", messageCache, MessageCache::size).tag("cache", "messages")
+				.description("The number of entries in this cache.").register(registry);
+		FunctionCounter.builder("messages.loads", messageLoads, MessageLoadCoalescer::getExecutedCount)
+				.tag("result", "executed").description("The number of message loads sent to the database.")
+				.register(registry);
+		FunctionCounter.builder("messages.loads", messageLoads, MessageLoadCoalescer::getCollapsedCount)
+				.tag("result", "collapsed").description("The number of message lookups which shared a running load.")
+				.register(registry);
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.example.demo.bl;
+
+import com.example.demo.dl.MessageEntity;
+
+/**
+ * Change of a message entity published by MessageChangeFeed. Events are
+ * numbered by the feed in order of their publishing, so a subscriber can
+ * resume the feed after the last received event.
+ *
+ * @author serhii.shvets
+ *
+ */
+public class MessageChangeEvent {
+
+	/**
+	 * Type of the change. RESET is not a change of a message entity, it tells the
+	 * subscriber to read the messages again, since changes before the event are
+	 * not available in the feed.
+	 */
+	public enum Type {
+		POST, PUT, DELETE, RESET
+	}
+
+	private final long sequence;
+	private final Type type;
+	private final Long id;
+	private final MessageEntity message;
+
+	/**
+	 * @param sequence - number of the event in the feed.
+	 * @param type     - type of the change.
+	 * @param id       - ID of the changed message entity, null for RESET.
+	 * @param message  - the posted or updated message entity, null for DELETE
+	 *                 and RESET.
+	 */
+	public MessageChangeEvent(long sequence, Type type, Long id, MessageEntity message) {
+		this.sequence = sequence;
+		this.type = type;
+		this.id = id;
+		this.message = message;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public MessageEntity getMessage() {
+		return message;
+	}
+
+}
@@ -0,0 +1,263 @@
+package com.example.demo.bl;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.bl.MessageChangeEvent.Type;
+import com.example.demo.dl.MessageEntity;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Feed of changes of message entities, published by MessageService once they
+ * are committed and passed to every subscriber in order of their publishing.
+ * <p>
+ * Every subscriber has a queue of <i>message.feed.buffer-size</i> events,
+ * which are passed to its listener by a thread of its own while the queue is
+ * not empty, so a listener blocked by a slow client holds up no other
+ * subscriber. No more than <i>message.feed.max-threads</i> threads are started
+ * for that, idle ones are stopped after a minute. A subscriber whose queue is
+ * full, or which gets no thread since all of them are held by other
+ * subscribers, is dropped, so a slow client does not hold events, the
+ * publishing thread or more threads; the client is expected to subscribe again
+ * with the sequence of the last received event. The last
+ * <i>message.feed.history-size</i> events are kept for such subscribers. A
+ * subscriber which missed more events than the history keeps, or more than its
+ * queue can hold, gets a RESET event instead, telling it to read the messages
+ * again, as does a subscriber without the last sequence.
+ * <p>
+ * The feed contains changes made through MessageService of this application
+ * only. Dropped subscribers are counted by messages.feed.dropped meter, the
+ * number of subscribers is measured by messages.feed.subscribers meter.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageChangeFeed implements MeterBinder {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageChangeFeed.class);
+
+	private final MessageChangeEvent[] history;
+	private final int bufferSize;
+	private final ExecutorService executor;
+	private final Semaphore drainPermits;
+	private final long firstSequence;
+	private long lastSequence;
+
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+	private final LongAdder droppedCount = new LongAdder();
+
+	/**
+	 * @param historySize - number of the last events kept for subscribers
+	 *                    resuming the feed.
+	 * @param bufferSize  - maximal number of events waiting for a subscriber.
+	 * @param maxThreads  - maximal number of threads passing events to the
+	 *                    listeners.
+	 */
+	public MessageChangeFeed(@Value("${message.feed.history-size:1000}") int historySize,
+			@Value("${message.feed.buffer-size:256}") int bufferSize,
+			@Value("${message.feed.max-threads:64}") int maxThreads) {
+		this.history = new MessageChangeEvent[historySize];
+		this.bufferSize = bufferSize;
+		// sequences of the previous run of the application are older than the history, so its subscribers are reset
+		this.firstSequence = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+		this.lastSequence = firstSequence;
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "message-feed-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		this.executor = executor;
+		// a permit per draining subscriber, so the queue of the executor never waits for a blocked listener
+		this.drainPermits = new Semaphore(maxThreads);
+	}
+
+	/**
+	 * The method for publishing a change of a message entity to all subscribers.
+	 *
+	 * @param type    - type of the change.
+	 * @param id      - ID of the changed message entity.
+	 * @param message - the posted or updated message entity, null for DELETE.
+	 */
+	public synchronized void publish(Type type, Long id, MessageEntity message) {
+		MessageChangeEvent event = new MessageChangeEvent(++lastSequence, type, id, message);
+		history[(int) (event.getSequence() % history.length)] = event;
+		for (Subscription subscription : subscriptions) {
+			subscription.offer(event);
+		}
+	}
+
+	/**
+	 * The method for subscribing to the feed.
+	 *
+	 * @param lastSequence - sequence of the last event received by the
+	 *                     subscriber before, or null for a new subscriber.
+	 * @param listener     - listener of the events, called by a single thread
+	 *                     at a time. An exception thrown by it cancels the
+	 *                     subscription.
+	 * @param onDrop       - action performed once the subscriber is dropped,
+	 *                     because its queue is full or there is no free thread
+	 *                     for it. It is not called while the listener is.
+	 * @return Subscription object, which has to be cancelled once the subscriber
+	 *         is gone.
+	 */
+	public synchronized Subscription subscribe(Long lastSequence, Consumer<MessageChangeEvent> listener,
+			Runnable onDrop) {
+		Subscription subscription = new Subscription(listener, onDrop);
+		// added first, so a subscriber dropped while the missed events are offered is not kept
+		subscriptions.add(subscription);
+		long oldestSequence = Math.max(firstSequence, this.lastSequence - history.length);
+		if (lastSequence == null || lastSequence < oldestSequence || lastSequence > this.lastSequence
+				|| this.lastSequence - lastSequence > bufferSize) {
+			subscription.offer(new MessageChangeEvent(this.lastSequence, Type.RESET, null, null));
+		} else {
+			for (long sequence = lastSequence + 1; sequence <= this.lastSequence; sequence++) {
+				subscription.offer(history[(int) (sequence % history.length)]);
+			}
+		}
+		return subscription;
+	}
+
+	/**
+	 * @return number of current subscribers.
+	 */
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * The method stopping the threads on shutdown of the application.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("messages.feed.subscribers", this, MessageChangeFeed::getSubscriberCount)
+				.description("The number of subscribers of the message change feed.").register(registry);
+		FunctionCounter.builder("messages.feed.dropped", droppedCount, LongAdder::sum)
+				.description("The number of subscribers dropped since their queue of changes was full"
+						+ " or there was no free thread for them.")
+				.register(registry);
+	}
+
+	/**
+	 * Subscription to the feed, passing the queued events to its listener.
+	 */
+	public final class Subscription {
+
+		private final BlockingQueue<MessageChangeEvent> queue = new ArrayBlockingQueue<MessageChangeEvent>(
+				bufferSize);
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private final Consumer<MessageChangeEvent> listener;
+		private final Runnable onDrop;
+		private volatile boolean dropped;
+		private volatile boolean cancelled;
+
+		private Subscription(Consumer<MessageChangeEvent> listener, Runnable onDrop) {
+			this.listener = listener;
+			this.onDrop = onDrop;
+		}
+
+		private void offer(MessageChangeEvent event) {
+			if (cancelled) {
+				return;
+			}
+			if (!queue.offer(event)) {
+				log.debug("Subscriber of message changes is too slow, dropping it");
+				// the thread draining the full queue calls onDrop once the listener returns
+				drop();
+			} else if (draining.compareAndSet(false, true)) {
+				if (!drainPermits.tryAcquire()) {
+					log.debug("No free thread for a subscriber of message changes, dropping it");
+					// the listener is not called, since no thread drains the queue
+					drop();
+					onDrop.run();
+					return;
+				}
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					drainPermits.release();
+					log.debug("Message change feed is stopped. {}", e.toString());
+				}
+			}
+		}
+
+		private void drop() {
+			droppedCount.increment();
+			dropped = true;
+			cancel();
+		}
+
+		private void drain() {
+			try {
+				drainQueue();
+			} finally {
+				drainPermits.release();
+			}
+		}
+
+		private void drainQueue() {
+			while (!cancelled) {
+				MessageChangeEvent event = queue.poll();
+				if (event == null) {
+					draining.set(false);
+					// an event offered after the poll was left to this thread, since draining was still set
+					if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+						return;
+					}
+					continue;
+				}
+				try {
+					listener.accept(event);
+				} catch (RuntimeException e) {
+					log.debug("Subscriber of message changes failed, dropping it. {}", e.toString());
+					cancel();
+				}
+			}
+			// still draining, so no other thread calls onDrop
+			if (dropped) {
+				onDrop.run();
+			}
+		}
+
+		/**
+		 * The method for cancelling the subscription, the queued events are
+		 * discarded.
+		 */
+		public void cancel() {
+			cancelled = true;
+			subscriptions.remove(this);
+			queue.clear();
+		}
+
+	}
+
+}
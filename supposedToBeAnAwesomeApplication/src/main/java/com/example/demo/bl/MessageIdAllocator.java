@@ -0,0 +1,72 @@
+package com.example.demo.bl;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dl.MessageRepository;
+
+/**
+ * Allocator of IDs for message entities posted without an ID. IDs are reserved
+ * in blocks of <i>message.id.block-size</i> from messages_m_id_seq sequence of
+ * the database (pooled allocation): every value of the sequence is the first
+ * ID of a block which belongs to this application only, so the database is
+ * called once per block instead of once per message entity, and several
+ * applications sharing the database never get the same ID. The block size has
+ * to be equal to the increment of the sequence.
+ * <p>
+ * IDs left in the block when the application stops are not used, and IDs of
+ * several applications are not ordered by the time of posting.
+ * <p>
+ * Allocations are serialized by a ReentrantLock instead of a synchronized
+ * method, since the lock is held during the database call reserving a block,
+ * which would pin the carrier thread of a virtual thread.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageIdAllocator {
+
+	private final MessageRepository messageRepository;
+	private final int blockSize;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private long nextId;
+	private long blockEnd;
+
+	/**
+	 * @param messageRepository - repository reserving the blocks.
+	 * @param blockSize         - number of IDs in a block, equal to the increment
+	 *                          of messages_m_id_seq sequence.
+	 */
+	public MessageIdAllocator(MessageRepository messageRepository,
+			@Value("${message.id.block-size:50}") int blockSize) {
+		this.messageRepository = messageRepository;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * The method for allocating the next ID, reserving a new block in case if the
+	 * current one is used up.
+	 *
+	 * @return ID which was not allocated before.
+	 * @throws ArithmeticException in case if the ID is out of range of int IDs.
+	 */
+	public int allocate() {
+		lock.lock();
+		try {
+			if (nextId == blockEnd) {
+				nextId = messageRepository.nextIdBlock();
+				blockEnd = nextId + blockSize;
+			}
+			int id = Math.toIntExact(nextId);
+			nextId++;
+			return id;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.example.demo.bl;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.bl.MessageWriteJournal.Entry;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Replayer of writes journaled by MessageWriteJournal, checking the journal
+ * every <i>message.journal.replay-interval-ms</i> and replaying its pending
+ * writes in order of their appending through MessageService, in batches of
+ * <i>message.batch.size</i> writes executed in a single transaction.
+ * <p>
+ * In case if the database is still not available, or any other failure of the
+ * database happens, the replay is stopped until the next check. A batch
+ * violating an integrity constraint (for example a text which is too long) is
+ * replayed write by write, and writes which violate it again are logged and
+ * skipped, so they do not block the journal.
+ * <p>
+ * Replayed writes are counted by messages.journal.replayed meter with result
+ * tag equal to "applied", "skipped" for posts of occupied IDs and puts or
+ * deletes of missing message entities, and "failed". The search index, the
+ * cache and the change feed are updated by MessageService once the batch is
+ * committed.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageJournalReplayer implements MeterBinder {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageJournalReplayer.class);
+
+	@Autowired
+	private MessageWriteJournal journal;
+
+	@Autowired
+	private MessageServiceInterface messageService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${message.batch.size:500}")
+	private int batchSize;
+
+	@Value("${message.journal.replay-interval-ms:1000}")
+	private long replayIntervalMs;
+
+	private final LongAdder appliedCount = new LongAdder();
+	private final LongAdder skippedCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "message-journal-replay");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The method starting the periodic replay in case if the journal is enabled,
+	 * once the application is started, so it is started by lazy beans of the
+	 * <i>faststart</i> profile as well.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (journal.isEnabled()) {
+			executor.scheduleWithFixedDelay(this::replay, replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * The method stopping the replay on shutdown of the application.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * The method replaying all pending writes of the journal.
+	 *
+	 * @return number of replayed writes.
+	 */
+	public int replay() {
+		int replayed = 0;
+		try {
+			for (int count; (count = replayBatch()) > 0;) {
+				replayed += count;
+			}
+		} catch (RuntimeException e) {
+			log.error("Unable to replay the write journal. {}", e.toString());
+		}
+		if (replayed > 0) {
+			log.info("Replayed {} journaled writes, {} writes are pending", replayed, journal.getPendingCount());
+		}
+		return replayed;
+	}
+
+	/**
+	 * Replays the oldest batch of pending writes.
+	 *
+	 * @return number of replayed writes, 0 in case if there are no pending writes
+	 *         or the database is not available.
+	 */
+	private int replayBatch() {
+		List<Entry> entries = journal.readPending(batchSize);
+		if (entries.isEmpty()) {
+			return 0;
+		}
+		int applied;
+		try {
+			applied = new TransactionTemplate(transactionManager).execute(status -> {
+				int count = 0;
+				for (Entry entry : entries) {
+					count += apply(entry) ? 1 : 0;
+				}
+				return count;
+			});
+		} catch (CannotCreateTransactionException | DataAccessResourceFailureException e) {
+			log.debug("Database is not available for the journal replay. {}", e.toString());
+			return 0;
+		} catch (DataIntegrityViolationException e) {
+			log.warn("Journaled batch failed, replaying it write by write. {}", e.toString());
+			return replayOneByOne(entries);
+		} catch (DataAccessException e) {
+			log.warn("Unable to replay the write journal, retrying later. {}", e.toString());
+			return 0;
+		}
+		complete(entries, applied);
+		return entries.size();
+	}
+
+	private int replayOneByOne(List<Entry> entries) {
+		for (int i = 0; i < entries.size(); i++) {
+			Entry entry = entries.get(i);
+			try {
+				complete(entries.subList(i, i + 1), apply(entry) ? 1 : 0);
+			} catch (DataIntegrityViolationException e) {
+				log.error("Skipping journaled {} of message with id {}. {}", entry.getOperation(), entry.getId(),
+						e.toString());
+				journal.markReplayed(entries.subList(i, i + 1));
+				failedCount.increment();
+			} catch (CannotCreateTransactionException | DataAccessException e) {
+				log.warn("Unable to replay the write journal, retrying later. {}", e.toString());
+				return i;
+			}
+		}
+		return entries.size();
+	}
+
+	private boolean apply(Entry entry) {
+		int id = (int) entry.getId();
+		int grId = (int) entry.getGrId();
+		switch (entry.getOperation()) {
+		case POST:
+			return messageService.postMessageIfAbsent(id, entry.getText(), grId) != null;
+		case PUT:
+			return messageService.updateMessageText(id, entry.getText(), null) != null;
+		default:
+			return messageService.deleteMessageIfExisting(id);
+		}
+	}
+
+	/**
+	 * Flags committed writes as replayed and counts them.
+	 */
+	private void complete(List<Entry> entries, int applied) {
+		journal.markReplayed(entries);
+		appliedCount.add(applied);
+		skippedCount.add(entries.size() - applied);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("messages.journal.replayed", appliedCount, LongAdder::sum).tag("result", "applied")
+				.description("The number of journaled writes applied to the database.").register(registry);
+		FunctionCounter.builder("messages.journal.replayed", skippedCount, LongAdder::sum).tag("result", "skipped")
+				.description("The number of journaled writes with nothing to change in the database.")
+				.register(registry);
+		FunctionCounter.builder("messages.journal.replayed", failedCount, LongAdder::sum).tag("result", "failed")
+				.description("The number of journaled writes dropped after a constraint violation.").register(registry);
+	}
+
+}
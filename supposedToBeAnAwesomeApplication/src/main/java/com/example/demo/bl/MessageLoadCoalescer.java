@@ -0,0 +1,104 @@
+package com.example.demo.bl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dl.MessageEntity;
+
+/**
+ * Coalescer of concurrent loads of the same MessageEntity used by
+ * MessageService on cache misses (single flight): the first caller loads the
+ * entity from the database and callers asking for the same ID in the meantime
+ * wait for its result instead of sending their own queries.
+ * <p>
+ * Exceptions thrown by the load are rethrown to all waiting callers. A load
+ * is forgotten after every change of its message entity, so callers coming
+ * after the change do not get the result of a load started before it.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageLoadCoalescer {
+
+	private final ConcurrentMap<Long, CompletableFuture<MessageEntity>> loads
+			= new ConcurrentHashMap<Long, CompletableFuture<MessageEntity>>();
+
+	private final LongAdder executedCount = new LongAdder();
+	private final LongAdder collapsedCount = new LongAdder();
+
+	/**
+	 * The method for loading a MessageEntity object, sharing the load with
+	 * concurrent callers asking for the same ID.
+	 *
+	 * @param id     - ID of wanted MessageEntity.
+	 * @param loader - operation loading the MessageEntity from the database.
+	 * @return MessageEntity object returned by the loader, or null.
+	 */
+	public MessageEntity load(Long id, Supplier<MessageEntity> loader) {
+		CompletableFuture<MessageEntity> load = new CompletableFuture<MessageEntity>();
+		CompletableFuture<MessageEntity> runningLoad = loads.putIfAbsent(id, load);
+		if (runningLoad != null) {
+			collapsedCount.increment();
+			return join(runningLoad);
+		}
+		executedCount.increment();
+		try {
+			MessageEntity message = loader.get();
+			load.complete(message);
+			return message;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			loads.remove(id, load);
+		}
+	}
+
+	private static MessageEntity join(CompletableFuture<MessageEntity> load) {
+		try {
+			return load.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * The method for forgetting a running load of a MessageEntity object, so the
+	 * next caller starts a new one. Has to be called after every change of the
+	 * message entity in the database.
+	 *
+	 * @param id - ID of changed MessageEntity.
+	 */
+	public void forget(Long id) {
+		loads.remove(id);
+	}
+
+	/**
+	 * @return number of loads sent to the database.
+	 */
+	public long getExecutedCount() {
+		return executedCount.sum();
+	}
+
+	/**
+	 * @return number of calls which waited for a load of another caller instead
+	 *         of sending their own one.
+	 */
+	public long getCollapsedCount() {
+		return collapsedCount.sum();
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.example.demo.bl;
+
+import java.util.List;
+
+import com.example.demo.dl.MessageEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents a single page of message entities obtained by keyset pagination.
+ * 
+ * @author serhii.shvets
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class MessagePage {
+
+	/**
+	 * Message entities of the page ordered by ID, or by date and ID for pages of a
+	 * period.
+	 */
+	private final List<MessageEntity> messages;
+
+	/**
+	 * Cursor to pass for obtaining the next page, or null in case if this page is
+	 * the last one.
+	 */
+	private final Long nextCursor;
+
+}
@@ -0,0 +1,466 @@
+package com.example.demo.bl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process inverted index of texts of message entities, answering term and
+ * prefix queries with IDs of matching message entities.
+ * <p>
+ * Texts are split into lower case terms of letters and digits. Every term has
+ * an int ID and a posting list, a sorted long[] array of IDs of message
+ * entities containing the term; every indexed message entity keeps int[] array
+ * of IDs of its terms, so it can be removed without its text. The term
+ * dictionary is sorted, so a prefix query reads a single range of it.
+ * <p>
+ * The index is filled by MessageSearchIndexBuilder and kept up to date by
+ * MessageService. Updates made while the index is being built take precedence
+ * over the built state of the same message entities.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageSearchIndex {
+
+	private static final long[] NO_IDS = new long[0];
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final TreeMap<String, Integer> termIds = new TreeMap<String, Integer>();
+	private String[] terms = new String[1024];
+	private long[][] postings = new long[1024][];
+	private int[] postingSizes = new int[1024];
+	private int termSlots;
+	private int[] freeTermIds = new int[64];
+	private int freeTermCount;
+
+	private final DocumentTerms documents = new DocumentTerms();
+
+	private volatile boolean ready;
+	private Set<Long> updatedDuringBuild;
+
+	/**
+	 * The method for splitting a text into distinct lower case terms.
+	 *
+	 * @param text - text to split, may be null.
+	 * @return List of terms in order of their first occurrence.
+	 */
+	public static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<String>();
+		if (text == null) {
+			return tokens;
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (termChar && start < 0) {
+				start = i;
+			} else if (!termChar && start >= 0) {
+				String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+				if (!tokens.contains(token)) {
+					tokens.add(token);
+				}
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * The method for adding or replacing text of a message entity. Ignored when
+	 * the index is neither built nor being built.
+	 *
+	 * @param id   - ID of message entity.
+	 * @param text - text of message entity.
+	 */
+	public void add(Long id, String text) {
+		lock.writeLock().lock();
+		try {
+			if (updatedDuringBuild != null) {
+				updatedDuringBuild.add(id);
+			} else if (!ready) {
+				return;
+			}
+			addDocument(id, text);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The method for removing a message entity. Ignored when the index is neither
+	 * built nor being built.
+	 *
+	 * @param id - ID of message entity.
+	 */
+	public void remove(Long id) {
+		lock.writeLock().lock();
+		try {
+			if (updatedDuringBuild != null) {
+				updatedDuringBuild.add(id);
+			} else if (!ready) {
+				return;
+			}
+			removeDocument(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The method for starting a build of the index. Clears the index and starts
+	 * tracking of updates made during the build.
+	 */
+	public void startBuild() {
+		lock.writeLock().lock();
+		try {
+			ready = false;
+			clearTerms();
+			documents.clear();
+			updatedDuringBuild = new HashSet<Long>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The method for adding text of a message entity read by the build. Ignored
+	 * in case if the message entity was updated since the build was started.
+	 *
+	 * @param id   - ID of message entity.
+	 * @param text - text of message entity.
+	 */
+	public void addBuilt(Long id, String text) {
+		lock.writeLock().lock();
+		try {
+			if (updatedDuringBuild != null && !updatedDuringBuild.contains(id)) {
+				addDocument(id, text);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The method for finishing a build of the index.
+	 *
+	 * @param successful - false in case if the build failed, the index is cleared
+	 *                   and stays not ready then.
+	 */
+	public void finishBuild(boolean successful) {
+		lock.writeLock().lock();
+		try {
+			updatedDuringBuild = null;
+			ready = successful;
+			if (!successful) {
+				clearTerms();
+				documents.clear();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return true in case if the index is built and can be searched.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * The method for searching message entities containing all terms of the
+	 * query. A term ending with '*' matches all terms starting with it.
+	 *
+	 * @param query - query, for example <i>hello wor*</i>.
+	 * @param limit - maximal number of returned IDs.
+	 * @return sorted array of IDs of matching message entities, the lowest ones
+	 *         in case if more than limit entities match.
+	 * @throws IndexNotReadyException in case if the index is not built yet.
+	 */
+	public long[] search(String query, int limit) {
+		lock.readLock().lock();
+		try {
+			if (!ready) {
+				throw new IndexNotReadyException("Search index is not built yet");
+			}
+			long[] result = null;
+			for (String part : query.trim().split("\\s+")) {
+				List<String> partTerms = tokenize(part);
+				boolean prefix = part.endsWith("*");
+				for (int i = 0; i < partTerms.size(); i++) {
+					long[] ids = (prefix && i == partTerms.size() - 1) ? findPrefix(partTerms.get(i))
+							: findTerm(partTerms.get(i));
+					result = (result == null) ? ids : intersect(result, ids);
+					if (result.length == 0) {
+						return NO_IDS;
+					}
+				}
+			}
+			if (result == null) {
+				return NO_IDS;
+			}
+			return (result.length > limit) ? Arrays.copyOf(result, limit) : result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of indexed message entities.
+	 */
+	public int getDocumentCount() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of distinct terms of indexed message entities.
+	 */
+	public int getTermCount() {
+		lock.readLock().lock();
+		try {
+			return termIds.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private long[] findTerm(String term) {
+		Integer termId = termIds.get(term);
+		return (termId != null) ? Arrays.copyOf(postings[termId], postingSizes[termId]) : NO_IDS;
+	}
+
+	private long[] findPrefix(String prefix) {
+		Map<String, Integer> range = termIds.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+		if (range.size() == 1) {
+			return findTerm(range.keySet().iterator().next());
+		}
+		int size = 0;
+		for (Integer termId : range.values()) {
+			size += postingSizes[termId];
+		}
+		long[] ids = new long[size];
+		size = 0;
+		for (Integer termId : range.values()) {
+			System.arraycopy(postings[termId], 0, ids, size, postingSizes[termId]);
+			size += postingSizes[termId];
+		}
+		Arrays.sort(ids);
+		int distinct = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == 0 || ids[i] != ids[i - 1]) {
+				ids[distinct++] = ids[i];
+			}
+		}
+		return Arrays.copyOf(ids, distinct);
+	}
+
+	private static long[] intersect(long[] first, long[] second) {
+		long[] result = new long[Math.min(first.length, second.length)];
+		int size = 0;
+		for (int i = 0, j = 0; i < first.length && j < second.length;) {
+			if (first[i] < second[j]) {
+				i++;
+			} else if (first[i] > second[j]) {
+				j++;
+			} else {
+				result[size++] = first[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	private void addDocument(Long id, String text) {
+		removeDocument(id);
+		List<String> documentTerms = tokenize(text);
+		int[] documentTermIds = new int[documentTerms.size()];
+		for (int i = 0; i < documentTermIds.length; i++) {
+			documentTermIds[i] = getOrCreateTermId(documentTerms.get(i));
+			addPosting(documentTermIds[i], id);
+		}
+		documents.put(id, documentTermIds);
+	}
+
+	private void removeDocument(Long id) {
+		int[] documentTermIds = documents.remove(id);
+		if (documentTermIds == null) {
+			return;
+		}
+		for (int termId : documentTermIds) {
+			removePosting(termId, id);
+		}
+	}
+
+	private int getOrCreateTermId(String term) {
+		Integer termId = termIds.get(term);
+		if (termId != null) {
+			return termId;
+		}
+		int newTermId = (freeTermCount > 0) ? freeTermIds[--freeTermCount] : termSlots++;
+		if (newTermId == terms.length) {
+			int capacity = terms.length * 2;
+			terms = Arrays.copyOf(terms, capacity);
+			postings = Arrays.copyOf(postings, capacity);
+			postingSizes = Arrays.copyOf(postingSizes, capacity);
+		}
+		terms[newTermId] = term;
+		postings[newTermId] = new long[1];
+		postingSizes[newTermId] = 0;
+		termIds.put(term, newTermId);
+		return newTermId;
+	}
+
+	private void addPosting(int termId, long id) {
+		long[] ids = postings[termId];
+		int size = postingSizes[termId];
+		int index = Arrays.binarySearch(ids, 0, size, id);
+		if (index >= 0) {
+			return;
+		}
+		index = -index - 1;
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			postings[termId] = ids;
+		}
+		System.arraycopy(ids, index, ids, index + 1, size - index);
+		ids[index] = id;
+		postingSizes[termId] = size + 1;
+	}
+
+	private void removePosting(int termId, long id) {
+		long[] ids = postings[termId];
+		int size = postingSizes[termId];
+		int index = Arrays.binarySearch(ids, 0, size, id);
+		if (index < 0) {
+			return;
+		}
+		System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+		postingSizes[termId] = --size;
+		if (size == 0) {
+			termIds.remove(terms[termId]);
+			terms[termId] = null;
+			postings[termId] = null;
+			if (freeTermCount == freeTermIds.length) {
+				freeTermIds = Arrays.copyOf(freeTermIds, freeTermCount * 2);
+			}
+			freeTermIds[freeTermCount++] = termId;
+		} else if (size < ids.length >> 2) {
+			postings[termId] = Arrays.copyOf(ids, size * 2);
+		}
+	}
+
+	private void clearTerms() {
+		termIds.clear();
+		terms = new String[1024];
+		postings = new long[1024][];
+		postingSizes = new int[1024];
+		termSlots = 0;
+		freeTermCount = 0;
+	}
+
+	/**
+	 * Open addressing hash map from long IDs of message entities to int[] arrays
+	 * of their term IDs, without boxing of the keys.
+	 */
+	private static final class DocumentTerms {
+
+		private long[] keys = new long[1024];
+		private int[][] values = new int[1024][];
+		private int size;
+
+		private static int hash(long key) {
+			long hash = key * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32));
+		}
+
+		private int indexOf(long key) {
+			int mask = keys.length - 1;
+			for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+				if (values[i] == null) {
+					return -1;
+				}
+				if (keys[i] == key) {
+					return i;
+				}
+			}
+		}
+
+		private void put(long key, int[] value) {
+			if ((size + 1) * 4 > keys.length * 3) {
+				resize(keys.length * 2);
+			}
+			int mask = keys.length - 1;
+			int i = hash(key) & mask;
+			while (values[i] != null && keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			if (values[i] == null) {
+				size++;
+			}
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		private int[] remove(long key) {
+			int index = indexOf(key);
+			if (index < 0) {
+				return null;
+			}
+			int[] removed = values[index];
+			int mask = keys.length - 1;
+			int gap = index;
+			for (int i = (index + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+				int home = hash(keys[i]) & mask;
+				if (((i - home) & mask) >= ((i - gap) & mask)) {
+					keys[gap] = keys[i];
+					values[gap] = values[i];
+					gap = i;
+				}
+			}
+			values[gap] = null;
+			size--;
+			return removed;
+		}
+
+		private void resize(int capacity) {
+			long[] oldKeys = keys;
+			int[][] oldValues = values;
+			keys = new long[capacity];
+			values = new int[capacity][];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldValues[i] != null) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		private void clear() {
+			keys = new long[1024];
+			values = new int[1024][];
+			size = 0;
+		}
+
+		private int size() {
+			return size;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.example.demo.bl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builder of MessageSearchIndex, streaming all message entities from the
+ * database in a background thread once the application is started, so the
+ * startup is not delayed by the number of stored message entities.
+ * <p>
+ * In case if the database is not available the failure is logged and the build
+ * is repeated after <i>message.search.retry-delay-ms</i>. Search requests are
+ * answered with HttpStatus.SERVICE_UNAVAILABLE until the index is built.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageSearchIndexBuilder {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageSearchIndexBuilder.class);
+
+	@Autowired
+	private MessageServiceInterface messageService;
+
+	@Autowired
+	private MessageSearchIndex searchIndex;
+
+	@Value("${message.search.enabled:true}")
+	private boolean enabled;
+
+	@Value("${message.search.retry-delay-ms:60000}")
+	private long retryDelayMs;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "message-search-index");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The method starting the build, after the schema of the messages table is
+	 * initialized.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.LOWEST_PRECEDENCE)
+	public void startBuild() {
+		if (enabled) {
+			executor.execute(this::build);
+		}
+	}
+
+	private void build() {
+		long start = System.currentTimeMillis();
+		searchIndex.startBuild();
+		try {
+			messageService.forEachMessage(0, 0, message -> searchIndex.addBuilt(message.getMesId(), message.getText()));
+			searchIndex.finishBuild(true);
+			log.info("Search index built in {} ms: {} messages, {} terms", System.currentTimeMillis() - start,
+					searchIndex.getDocumentCount(), searchIndex.getTermCount());
+		} catch (RuntimeException e) {
+			searchIndex.finishBuild(false);
+			log.warn("Unable to build search index, retrying in {} ms. {}", retryDelayMs, e.toString());
+			executor.schedule(this::build, retryDelayMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * The method stopping the build on shutdown of the application.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
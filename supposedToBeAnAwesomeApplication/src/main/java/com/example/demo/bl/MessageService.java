@@ -1,10 +1,32 @@
 package com.example.demo.bl;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.example.demo.bl.MessageChangeEvent.Type;
 import com.example.demo.dl.MessageEntity;
 import com.example.demo.dl.MessageRepository;
 
@@ -20,6 +42,34 @@ public class MessageService implements MessageServiceInterface {
 	@Autowired
 	private MessageRepository messageRepository;
 
+	@Autowired
+	private MessageCache messageCache;
+
+	@Autowired
+	private MessageLoadCoalescer messageLoads;
+
+	@Autowired
+	private MessageSearchIndex searchIndex;
+
+	@Autowired
+	private MessageChangeFeed changeFeed;
+
+	@Autowired
+	private MessageIdAllocator idAllocator;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PersistenceExceptionTranslator exceptionTranslator;
+
+	@Value("${message.id.max-attempts:100}")
+	private int maxIdAttempts;
+
+	private final CachedDateFormatter dateFormatter = new CachedDateFormatter();
+
+	private final AtomicLong changeCount = new AtomicLong();
+
 	@Override
 	public List<MessageEntity> findAll() {
 		List<MessageEntity> messages = (List<MessageEntity>) messageRepository.findAll();
@@ -27,17 +77,251 @@ public class MessageService implements MessageServiceInterface {
 	}
 
 	@Override
-	public MessageEntity postMessage(int id, String text, int grId) {
+	@Transactional(readOnly = true)
+	public int forEachMessage(int page, int limit, Consumer<MessageEntity> action) {
+		return forEach((limit > 0) ? messageRepository.streamAll(PageRequest.of(Math.max(page, 0), limit))
+				: messageRepository.streamAll(), action);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public int forEachMessageBetween(LocalDate from, LocalDate to, Consumer<MessageEntity> action) {
+		return forEach(messageRepository.streamDateRange(from.atStartOfDay(), to.plusDays(1).atStartOfDay()),
+				action);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public int forEachGroupMessageBetween(int grId, LocalDate from, LocalDate to, Consumer<MessageEntity> action) {
+		return forEach(messageRepository.streamGroupDateRange((long) grId, from.atStartOfDay(),
+				to.plusDays(1).atStartOfDay()), action);
+	}
+
+	@Override
+	public MessagePage findMessagesBetweenAfter(LocalDate from, LocalDate to, MessageEntity after, int limit) {
+		int pageSize = getPageSize(limit);
+		LocalDateTime start = from.atStartOfDay();
+		return createPage(messageRepository.findDateRangePageAfter(start, to.plusDays(1).atStartOfDay(),
+				(after != null) ? after.getDate() : start, (after != null) ? after.getMesId() : Long.MIN_VALUE,
+				PageRequest.of(0, pageSize + 1)), pageSize);
+	}
+
+	@Override
+	public MessagePage findGroupMessagesBetweenAfter(int grId, LocalDate from, LocalDate to, MessageEntity after,
+			int limit) {
+		int pageSize = getPageSize(limit);
+		LocalDateTime start = from.atStartOfDay();
+		return createPage(messageRepository.findGroupDateRangePageAfter((long) grId, start,
+				to.plusDays(1).atStartOfDay(), (after != null) ? after.getDate() : start,
+				(after != null) ? after.getMesId() : Long.MIN_VALUE, PageRequest.of(0, pageSize + 1)), pageSize);
+	}
+
+	/**
+	 * Passes the streamed message entities to the action, detaching each of them
+	 * afterwards, and closes the stream.
+	 */
+	private int forEach(Stream<MessageEntity> messages, Consumer<MessageEntity> action) {
+		int count = 0;
+		try (Stream<MessageEntity> stream = messages) {
+			for (MessageEntity message : (Iterable<MessageEntity>) stream::iterator) {
+				action.accept(message);
+				entityManager.detach(message);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public MessagePage findMessagesAfter(Long afterId, int limit) {
+		int pageSize = getPageSize(limit);
+		return createPage(messageRepository.findPageAfter((afterId != null) ? afterId : Long.MIN_VALUE,
+				PageRequest.of(0, pageSize + 1)), pageSize);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public int forEachGroupMessage(int grId, Consumer<MessageEntity> action) {
+		return forEach(messageRepository.streamGroup((long) grId), action);
+	}
+
+	@Override
+	public MessagePage findGroupMessagesAfter(int grId, Long afterId, int limit) {
+		int pageSize = getPageSize(limit);
+		return createPage(messageRepository.findGroupPageAfter((long) grId,
+				(afterId != null) ? afterId : Long.MIN_VALUE, PageRequest.of(0, pageSize + 1)), pageSize);
+	}
+
+	@Override
+	public long countGroupMessages(int grId) {
+		return messageRepository.countGroupMessages((long) grId);
+	}
+
+	@Override
+	public long getChangeCount() {
+		return changeCount.get();
+	}
+
+	@Override
+	public List<MessageEntity> searchMessages(String query, int limit) {
+		long[] ids = searchIndex.search(query, getPageSize(limit));
+		List<Long> idList = new ArrayList<Long>(ids.length);
+		for (long id : ids) {
+			idList.add(id);
+		}
+		List<MessageEntity> messages = new ArrayList<MessageEntity>(ids.length);
+		messageRepository.findAllById(idList).forEach(messages::add);
+		messages.sort(Comparator.comparing(MessageEntity::getMesId));
+		return messages;
+	}
+
+	private int getPageSize(int limit) {
+		return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+	}
+
+	/**
+	 * Creates a page from message entities read with one extra row, which only
+	 * tells that there is a next page.
+	 */
+	private MessagePage createPage(List<MessageEntity> messages, int pageSize) {
+		if (messages.size() > pageSize) {
+			messages = messages.subList(0, pageSize);
+			return new MessagePage(messages, messages.get(pageSize - 1).getMesId());
+		}
+		return new MessagePage(messages, null);
+	}
 
+	@Override
+	public MessageEntity postMessageIfAbsent(int id, String text, int grId) {
+		MessageEntity message = createMessageEntity(id, text, grId);
+		if (messageRepository.insertIfAbsent(message.getMesId(), message.getText(), message.getGrId(),
+				message.getDate()) == 0) {
+			return null;
+		}
+		message.setVersion(0L);
+		invalidate(message.getMesId());
+		publishChange(Type.POST, message.getMesId(), message);
+		return message;
+	}
+
+	@Override
+	public MessageEntity postNewMessage(String text, int grId) {
+		for (int attempt = 0; attempt < maxIdAttempts; attempt++) {
+			// IDs chosen by clients may occupy the allocated ones, they are skipped
+			MessageEntity message = postMessageIfAbsent(idAllocator.allocate(), text, grId);
+			if (message != null) {
+				return message;
+			}
+		}
+		throw new IllegalStateException("Unable to allocate a free ID in " + maxIdAttempts
+				+ " attempts, messages_m_id_seq sequence is behind IDs chosen by clients");
+	}
+
+	@Override
+	public MessageEntity updateMessageText(int id, String text, Long version) {
+		Long longId = new Long(id);
+		// the entity is used only for the rule of too short texts
+		MessageEntity update = new MessageEntity();
+		update.setText(text);
+		int updatedCount = (version != null)
+				? messageRepository.updateTextIfVersion(longId, update.getText(), version)
+				: messageRepository.updateTextIfExisting(longId, update.getText());
+		invalidate(longId);
+		if (updatedCount == 0) {
+			if (version != null && messageRepository.existsById(longId)) {
+				throw new OptimisticLockingFailureException(
+						"Message with ID " + id + " was changed, its version is not " + version);
+			}
+			return null;
+		}
+		// group, date and the new version are read back, the row may be changed again meanwhile
+		MessageEntity message = getMessageById(id);
+		if (message != null) {
+			publishChange(Type.PUT, longId, message);
+		}
+		return message;
+	}
+
+	@Override
+	@Transactional
+	public MessageEntity updateMessageTextIfMatch(int id, String text, long version, int contentHash) {
+		Long longId = new Long(id);
+		MessageEntity message = messageRepository.findByIdForUpdate(longId).orElse(null);
+		if (message == null) {
+			return null;
+		}
+		if (message.getVersion() != version || message.getContentHash() != contentHash) {
+			throw new OptimisticLockingFailureException(
+					"Message with ID " + id + " was changed, it is not the one of version " + version);
+		}
+		// the version is incremented by the flush of the changed entity
+		message.setText(text);
+		entityManager.flush();
+		entityManager.detach(message);
+		invalidate(longId);
+		publishChange(Type.PUT, longId, message);
+		return message;
+	}
+
+	@Override
+	public boolean deleteMessageIfExisting(int id) {
+		Long longId = new Long(id);
+		if (messageRepository.deleteIfExisting(longId) == 0) {
+			return false;
+		}
+		invalidate(longId);
+		publishChange(Type.DELETE, longId, null);
+		return true;
+	}
+
+	private MessageEntity createMessageEntity(int id, String text, int grId) {
 		MessageEntity message = new MessageEntity();
 		message.setMesId(new Long(id));
 		message.setText(text);
 		message.setGrId(new Long(grId));
 		message.setDate();
-		messageRepository.save(message);
 		return message;
 	}
 
+	@Override
+	@Transactional
+	public BatchInsertResult postMessages(List<MessageEntity> messages) {
+		BatchInsertResult result = new BatchInsertResult();
+		List<MessageEntity> insertedMessages = new ArrayList<MessageEntity>(messages.size());
+		List<Long> ids = new ArrayList<Long>(messages.size());
+		for (MessageEntity message : messages) {
+			ids.add(message.getMesId());
+		}
+		Set<Long> occupiedIds = new HashSet<Long>(messageRepository.findExistingIds(ids));
+
+		for (MessageEntity message : messages) {
+			if (!occupiedIds.add(message.getMesId())) {
+				result.addConflict(message.getMesId());
+				continue;
+			}
+			message.setDate();
+			entityManager.persist(message);
+			insertedMessages.add(message);
+			result.addInserted();
+		}
+		try {
+			entityManager.flush();
+		} catch (PersistenceException e) {
+			// the entity manager is not a repository, so its exceptions are not translated by Spring
+			DataAccessException translated = exceptionTranslator.translateExceptionIfPossible(e);
+			throw (translated != null) ? translated : e;
+		}
+		entityManager.clear();
+		afterCommit(() -> {
+			changeCount.incrementAndGet();
+			for (MessageEntity message : insertedMessages) {
+				searchIndex.add(message.getMesId(), message.getText());
+				changeFeed.publish(Type.POST, message.getMesId(), message);
+			}
+		});
+		return result;
+	}
+
 	@Override
 	public boolean checkMessageIfExixting(int id) {
 		Long longId = new Long(id);
@@ -48,26 +332,104 @@ public class MessageService implements MessageServiceInterface {
 	public void deleteMessage(int id) {
 		Long longId = new Long(id);
 		messageRepository.deleteById(longId);
+		invalidate(longId);
+		publishChange(Type.DELETE, longId, null);
 	}
 
 	@Override
 	public MessageEntity getMessageById(int id) {
-		if (messageRepository.findById(new Long(id)).isPresent()) {
-			return messageRepository.findById(new Long(id)).get();
-		} else {
-			return null;
+		Long longId = new Long(id);
+		if (TransactionSynchronizationManager.isActualTransactionActive()
+				&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			// uncommitted changes are neither cached nor shared with concurrent loads
+			return messageRepository.findById(longId).orElse(null);
+		}
+		MessageEntity message = messageCache.get(longId);
+		if (message == null) {
+			message = messageLoads.load(longId, () -> {
+				long stamp = messageCache.startLoad(longId);
+				MessageEntity loaded = messageRepository.findById(longId).orElse(null);
+				if (loaded != null) {
+					messageCache.put(longId, loaded, stamp);
+				}
+				return loaded;
+			});
 		}
+		return message;
+	}
+
+	/**
+	 * Removes the changed message entity from the cache and forgets its running
+	 * load, and does it again after the completion of the current transaction,
+	 * since the entity could be loaded before the commit or the rollback.
+	 */
+	private void invalidate(Long id) {
+		messageCache.invalidate(id);
+		messageLoads.forget(id);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					messageCache.invalidate(id);
+					messageLoads.forget(id);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Updates the search index, counts the change of the message table and
+	 * publishes it to the feed once it is committed.
+	 */
+	private void publishChange(Type type, Long id, MessageEntity message) {
+		afterCommit(() -> {
+			if (type == Type.DELETE) {
+				searchIndex.remove(id);
+			} else {
+				searchIndex.add(id, message.getText());
+			}
+			changeCount.incrementAndGet();
+			changeFeed.publish(type, id, message);
+		});
+	}
+
+	/**
+	 * Performs provided action after the commit of the current transaction in
+	 * case if there is one, otherwise at once.
+	 */
+	private void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
 	}
 
 	@Override
 	public String getDataFromMessageEntity(MessageEntity message) {
-		String resultString = "";
-		resultString += "Message with id " + message.getMesId() + ":\n";
-		resultString += "Text of a message: \n";
-		resultString += "\t" + message.getText() + "\n";
-		resultString += "Date of posting message: \n";
-		resultString += "\t " + message.getDate().toString() + "\n\n";
-		return resultString;
+		return appendDataFromMessageEntity(message, new StringBuilder(128)).toString();
+	}
+
+	@Override
+	public StringBuilder appendDataFromMessageEntity(MessageEntity message, StringBuilder buffer) {
+		Long id = message.getMesId();
+		buffer.append("Message with id ");
+		if (id != null) {
+			buffer.append(id.longValue());
+		} else {
+			buffer.append("null");
+		}
+		buffer.append(":\n");
+		buffer.append("Text of a message: \n");
+		buffer.append('\t').append(message.getText()).append('\n');
+		buffer.append("Date of posting message: \n");
+		buffer.append("\t ").append(dateFormatter.format(message.getDate())).append("\n\n");
+		return buffer;
 	}
 
 }
@@ -1,7 +1,11 @@
 package com.example.demo.bl;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.dl.MessageEntity;
@@ -17,6 +21,11 @@ import com.example.demo.dl.MessageEntity;
 @Service
 public interface MessageServiceInterface {
 
+	/**
+	 * Maximal number of message entities returned in a single page.
+	 */
+	public static final int MAX_PAGE_SIZE = 1000;
+
 	/**
 	 * The method returning a list of all Message entity stored inside connected
 	 * database.
@@ -27,14 +36,238 @@ public interface MessageServiceInterface {
 	public List<MessageEntity> findAll();
 
 	/**
-	 * The method for posting a new Message entity to the database. <br>
+	 * The method for passing message entities stored inside connected database to
+	 * provided action one by one, as they are read from the database cursor. Each
+	 * entity is detached after the action, so memory usage does not depend on the
+	 * number of stored entities.
+	 * 
+	 * @param page   - number of page to read, starting from 0. Ignored when limit
+	 *               is not positive.
+	 * @param limit  - maximal number of entities to read. Zero or negative value
+	 *               means that all entities will be read.
+	 * @param action - action performed on every read MessageEntity object.
+	 * @return number of MessageEntity objects passed to the action.
+	 */
+	public int forEachMessage(int page, int limit, Consumer<MessageEntity> action);
+
+	/**
+	 * The method for getting a page of message entities following the message
+	 * entity with provided ID (keyset pagination).
+	 * 
+	 * @param afterId - cursor returned with the previous page, or null for the
+	 *                first page.
+	 * @param limit   - maximal number of message entities in the page. Values
+	 *                outside of 1..MAX_PAGE_SIZE range are clamped to it.
+	 * @return MessagePage object with message entities ordered by ID and cursor
+	 *         of the next page.
+	 */
+	public MessagePage findMessagesAfter(Long afterId, int limit);
+
+	/**
+	 * The method for passing message entities of a group to provided action one
+	 * by one, ordered by ID, as they are read from the database cursor.
+	 * 
+	 * @param grId   - ID of the group.
+	 * @param action - action performed on every read MessageEntity object.
+	 * @return number of MessageEntity objects passed to the action.
+	 */
+	public int forEachGroupMessage(int grId, Consumer<MessageEntity> action);
+
+	/**
+	 * The method for passing message entities posted in provided period of days to
+	 * provided action one by one, ordered by date and ID, as they are read from
+	 * the database cursor.
+	 * 
+	 * @param from   - first day of the period.
+	 * @param to     - last day of the period, inclusive.
+	 * @param action - action performed on every read MessageEntity object.
+	 * @return number of MessageEntity objects passed to the action.
+	 */
+	public int forEachMessageBetween(LocalDate from, LocalDate to, Consumer<MessageEntity> action);
+
+	/**
+	 * The method for getting a page of message entities posted in provided period
+	 * of days, ordered by date and ID, following provided message entity (keyset
+	 * pagination).
+	 * 
+	 * @param from  - first day of the period.
+	 * @param to    - last day of the period, inclusive.
+	 * @param after - last message entity of the previous page, or null for the
+	 *              first page.
+	 * @param limit - size of the page, no more than MAX_PAGE_SIZE.
+	 * @return MessagePage object with message entities ordered by date and ID and
+	 *         cursor telling whether there is a next page.
+	 */
+	public MessagePage findMessagesBetweenAfter(LocalDate from, LocalDate to, MessageEntity after, int limit);
+
+	/**
+	 * The method for passing message entities of a group posted in provided period
+	 * of days to provided action one by one, ordered by date and ID, as they are
+	 * read from the database cursor.
+	 * 
+	 * @param grId   - ID of the group.
+	 * @param from   - first day of the period.
+	 * @param to     - last day of the period, inclusive.
+	 * @param action - action performed on every read MessageEntity object.
+	 * @return number of MessageEntity objects passed to the action.
+	 */
+	public int forEachGroupMessageBetween(int grId, LocalDate from, LocalDate to, Consumer<MessageEntity> action);
+
+	/**
+	 * The method for getting a page of message entities of a group posted in
+	 * provided period of days, ordered by date and ID, following provided message
+	 * entity (keyset pagination).
+	 * 
+	 * @param grId  - ID of the group.
+	 * @param from  - first day of the period.
+	 * @param to    - last day of the period, inclusive.
+	 * @param after - last message entity of the previous page, or null for the
+	 *              first page.
+	 * @param limit - size of the page, no more than MAX_PAGE_SIZE.
+	 * @return MessagePage object with message entities of the group ordered by
+	 *         date and ID and cursor telling whether there is a next page.
+	 */
+	public MessagePage findGroupMessagesBetweenAfter(int grId, LocalDate from, LocalDate to, MessageEntity after,
+			int limit);
+
+	/**
+	 * The method for getting a page of message entities of a group following the
+	 * message entity with provided ID (keyset pagination).
+	 * 
+	 * @param grId    - ID of the group.
+	 * @param afterId - cursor returned with the previous page, or null for the
+	 *                first page.
+	 * @param limit   - maximal number of message entities in the page. Values
+	 *                outside of 1..MAX_PAGE_SIZE range are clamped to it.
+	 * @return MessagePage object with message entities of the group ordered by ID
+	 *         and cursor of the next page.
+	 */
+	public MessagePage findGroupMessagesAfter(int grId, Long afterId, int limit);
+
+	/**
+	 * @param grId - ID of the group.
+	 * @return number of message entities of the group.
+	 */
+	public long countGroupMessages(int grId);
+
+	/**
+	 * The method for getting the number of changes of the message table made
+	 * through this service since the start of the application. A change is
+	 * counted once it is committed, so a read returning the new number never
+	 * sees the previous content of the table, and at the same time it is
+	 * published to MessageChangeFeed. Changes made by other applications are not
+	 * counted.
+	 * 
+	 * @return number of posts, puts and deletes of message entities, counting a
+	 *         batch of posts as a single change.
+	 */
+	public long getChangeCount();
+
+	/**
+	 * The method for searching message entities by their text with
+	 * MessageSearchIndex. A message entity matches in case if its text contains
+	 * all terms of the query, case insensitive; a term ending with '*' matches all
+	 * terms starting with it.
+	 * 
+	 * @param query - query, for example <i>hello wor*</i>.
+	 * @param limit - maximal number of returned message entities. Values outside
+	 *              of 1..MAX_PAGE_SIZE range are clamped to it.
+	 * @return List of matching MessageEntity objects ordered by ID, the lowest IDs
+	 *         in case if more entities match.
+	 * @throws IndexNotReadyException in case if the index is not built yet.
+	 */
+	public List<MessageEntity> searchMessages(String query, int limit);
+
+	/**
+	 * The method for posting a batch of new Message entities to the database in a
+	 * single transaction. Occupied IDs are checked with a single query and the
+	 * entities are inserted with JDBC batching, without reading them back.<br>
+	 * Date of every MessageEntity is set to the present date.
+	 * 
+	 * @param messages - MessageEntity objects to post, with ID, text and group ID
+	 *                 set.
+	 * @return BatchInsertResult object with number of inserted entities and IDs
+	 *         which are already occupied, including IDs repeated inside the batch.
+	 * @throws DataIntegrityViolationException in case if a message entity with one
+	 *                                         of the IDs was inserted concurrently
+	 *                                         after the check of occupied IDs.
+	 */
+	public BatchInsertResult postMessages(List<MessageEntity> messages);
+
+	/**
+	 * The method for posting a new Message entity to the database in case if its
+	 * ID is not occupied yet. The check and the insert are done by a single
+	 * statement, so concurrent posts with the same ID are safe.
 	 * 
 	 * @param id   - value of m_id variable of new MessageEntity object.
 	 * @param text - value of m_text variable of new MessageEntity object.
 	 * @param grId - value of gr_id variable of new MessageEntity object.
-	 * @return MessageEntity object same as posted in the database.
+	 * @return MessageEntity object same as posted in the database, or null in case
+	 *         if the ID is already occupied.
+	 */
+	public MessageEntity postMessageIfAbsent(int id, String text, int grId);
+
+	/**
+	 * The method for posting a new Message entity to the database with an ID
+	 * allocated by the application from a sequence of the database, so the
+	 * client does not have to look for a free ID. Allocated IDs which are already
+	 * occupied by IDs chosen by clients are skipped, up to
+	 * <i>message.id.max-attempts</i> IDs.
+	 * 
+	 * @param text - value of m_text variable of new MessageEntity object.
+	 * @param grId - value of gr_id variable of new MessageEntity object.
+	 * @return MessageEntity object same as posted in the database, with the
+	 *         allocated ID.
+	 * @throws IllegalStateException in case if all allocated IDs are occupied.
 	 */
-	public MessageEntity postMessage(int id, String text, int grId);
+	public MessageEntity postNewMessage(String text, int grId);
+
+	/**
+	 * The method for updating the text of an existing Message entity stored in
+	 * the database, keeping its group and date. In case if the expected version
+	 * is provided, the update is a compare-and-set of the version, so concurrent
+	 * updates of the same version do not overwrite each other and no row lock is
+	 * taken.
+	 * 
+	 * @param id      - ID of MessageEntity object to update.
+	 * @param text    - new value of m_text variable.
+	 * @param version - expected value of m_version variable, or null to update
+	 *                any version.
+	 * @return updated MessageEntity object with its new version, or null in case
+	 *         if it is not existing.
+	 * @throws OptimisticLockingFailureException in case if the version of the
+	 *                                           MessageEntity is different.
+	 */
+	public MessageEntity updateMessageText(int id, String text, Long version);
+
+	/**
+	 * The method for updating the text of an existing Message entity stored in
+	 * the database in case if it is still the one read by the client, compared
+	 * by both the version and the content hash, since the version of a message
+	 * entity deleted and posted again starts from zero again. The row is locked
+	 * while it is compared and updated.
+	 * 
+	 * @param id          - ID of MessageEntity object to update.
+	 * @param text        - new value of m_text variable.
+	 * @param version     - expected value of m_version variable.
+	 * @param contentHash - expected value of MessageEntity.getContentHash().
+	 * @return updated MessageEntity object with its new version, or null in case
+	 *         if it is not existing.
+	 * @throws OptimisticLockingFailureException in case if the version or the
+	 *                                           content of the MessageEntity is
+	 *                                           different.
+	 */
+	public MessageEntity updateMessageTextIfMatch(int id, String text, long version, int contentHash);
+
+	/**
+	 * The method for deleting a message entity stored in the database with a
+	 * single statement.
+	 * 
+	 * @param id - ID of message entity to delete.
+	 * @return boolean true in case if the message entity was deleted, boolean
+	 *         false in case if there is no message entity with such ID.
+	 */
+	public boolean deleteMessageIfExisting(int id);
 
 	/**
 	 * The method for checking whether a message entity with provided ID exists.
@@ -54,10 +287,14 @@ public interface MessageServiceInterface {
 
 	/**
 	 * The method for getting a MessageEntity object representing a message entity
-	 * stored in the database.
+	 * stored in the database. Recently read message entities are served from
+	 * MessageCache without accessing the database, except inside a read-write
+	 * transaction, whose uncommitted changes are read from the database and not
+	 * cached.
 	 * 
 	 * @param id - id of MessageEntity wanted.
-	 * @return MessageEntity object.
+	 * @return MessageEntity object, or null in case if there is no message entity
+	 *         with such ID.
 	 */
 	public MessageEntity getMessageById(int id);
 
@@ -70,4 +307,17 @@ public interface MessageServiceInterface {
 	 */
 	public String getDataFromMessageEntity(MessageEntity message);
 
+	/**
+	 * The method for appending whole data from provided MessageEntity wrapped in
+	 * readable text shape to provided buffer. Appends the same text as returned by
+	 * getDataFromMessageEntity(message) method without creating intermediate
+	 * Strings, so the buffer can be reused for rendering a lot of message
+	 * entities.
+	 * 
+	 * @param message - MessageEntity to operate.
+	 * @param buffer  - StringBuilder the text is appended to.
+	 * @return the provided buffer.
+	 */
+	public StringBuilder appendDataFromMessageEntity(MessageEntity message, StringBuilder buffer);
+
 }
@@ -0,0 +1,413 @@
+package com.example.demo.bl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Local append-only journal of message writes (posts, puts and deletes) which
+ * could not be written to the database, replayed by MessageJournalReplayer once
+ * the database is available again.
+ * <p>
+ * The journal is a sequence of memory-mapped segment files of
+ * <i>message.journal.segment-size</i> bytes in <i>message.journal.directory</i>;
+ * a new segment is started when a record does not fit into the current one.
+ * Every record consists of its length, a replayed flag, CRC32 of its content
+ * and the content itself. Records are written to the mapped memory, so an
+ * append does not wait for the disk; they survive a crash of the application,
+ * and with <i>message.journal.sync</i> set to true also a crash of the
+ * operating system, at the cost of forcing the segment to the disk on every
+ * write.
+ * <p>
+ * Replayed records are flagged and segments containing only replayed records
+ * are deleted. After a restart the pending records are found by scanning the
+ * segments; a record which was replayed but not flagged before the crash is
+ * replayed again.
+ * <p>
+ * The journal is disabled unless <i>message.journal.enabled</i> is set to
+ * true.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageWriteJournal implements MeterBinder {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageWriteJournal.class);
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final int HEADER_SIZE = 9;
+	private static final byte PENDING = 0;
+	private static final byte REPLAYED = 1;
+
+	/**
+	 * Journaled write operations.
+	 */
+	public enum Operation {
+		POST, PUT, DELETE
+	}
+
+	private final boolean enabled;
+	private final Path directory;
+	private final int segmentSize;
+	private final boolean sync;
+
+	private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+	private long nextSequence = 1;
+	private int readOffset;
+	private int appendOffset;
+	private volatile long pendingCount;
+
+	private final LongAdder appendCount = new LongAdder();
+
+	/**
+	 * @param enabled     - true in case if writes can be journaled.
+	 * @param directory   - directory of segment files.
+	 * @param segmentSize - size of a segment file in bytes.
+	 * @param sync        - true in case if the segment has to be forced to the
+	 *                    disk on every write.
+	 */
+	public MessageWriteJournal(@Value("${message.journal.enabled:false}") boolean enabled,
+			@Value("${message.journal.directory:journal}") String directory,
+			@Value("${message.journal.segment-size:16777216}") int segmentSize,
+			@Value("${message.journal.sync:false}") boolean sync) {
+		this.enabled = enabled;
+		this.directory = Paths.get(directory);
+		this.segmentSize = segmentSize;
+		this.sync = sync;
+	}
+
+	/**
+	 * The method for opening the segments left by the previous run and finding
+	 * their pending records.
+	 *
+	 * @throws IOException in case if the segments can not be read.
+	 */
+	@PostConstruct
+	public synchronized void open() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		Files.createDirectories(directory);
+		List<Path> paths = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			stream.forEach(paths::add);
+		}
+		Collections.sort(paths);
+
+		Segment firstPending = null;
+		for (Path path : paths) {
+			String name = path.getFileName().toString();
+			Segment segment = new Segment(
+					Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())),
+					path, map(path, false));
+			nextSequence = segment.sequence + 1;
+			segments.add(segment);
+			int offset = 0;
+			for (int length; (length = getRecordLength(segment, offset)) > 0; offset += HEADER_SIZE + length) {
+				if (segment.buffer.get(offset + 4) == PENDING) {
+					if (firstPending == null) {
+						firstPending = segment;
+						readOffset = offset;
+					}
+					pendingCount++;
+				}
+			}
+			appendOffset = offset;
+		}
+		while (!segments.isEmpty() && segments.getFirst() != firstPending) {
+			Files.deleteIfExists(segments.removeFirst().path);
+		}
+		if (pendingCount > 0) {
+			log.info("Write journal opened with {} pending writes in {} segments", pendingCount, segments.size());
+		}
+	}
+
+	/**
+	 * The method for forcing the segments to the disk on shutdown of the
+	 * application.
+	 */
+	@PreDestroy
+	public synchronized void close() {
+		for (Segment segment : segments) {
+			segment.buffer.force();
+		}
+	}
+
+	/**
+	 * @return true in case if writes can be journaled.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return true in case if there are journaled writes which are not replayed
+	 *         yet. New writes have to be journaled as well then, so they are not
+	 *         overtaken by the older ones.
+	 */
+	public boolean hasPendingWrites() {
+		return pendingCount > 0;
+	}
+
+	/**
+	 * @return number of journaled writes which are not replayed yet.
+	 */
+	public long getPendingCount() {
+		return pendingCount;
+	}
+
+	/**
+	 * The method for appending a write to the journal.
+	 *
+	 * @param operation - written operation.
+	 * @param id        - ID of message entity.
+	 * @param text      - text of message entity, null for deletes.
+	 * @param grId      - ID of the group of message entity.
+	 * @throws IllegalStateException in case if the journal is disabled.
+	 * @throws UncheckedIOException  in case if a new segment can not be created.
+	 */
+	public synchronized void append(Operation operation, long id, String text, long grId) {
+		if (!enabled) {
+			throw new IllegalStateException("Write journal is disabled");
+		}
+		byte[] textBytes = (text != null) ? text.getBytes(StandardCharsets.UTF_8) : null;
+		int length = 21 + ((textBytes != null) ? textBytes.length : 0);
+		if (HEADER_SIZE + length > segmentSize) {
+			throw new IllegalArgumentException("Write does not fit into a journal segment");
+		}
+		if (segments.isEmpty() || appendOffset + HEADER_SIZE + length > segments.getLast().buffer.capacity()) {
+			startSegment();
+		}
+		MappedByteBuffer buffer = segments.getLast().buffer;
+		ByteBuffer record = buffer.duplicate();
+		record.position(appendOffset + HEADER_SIZE);
+		record.put((byte) operation.ordinal()).putLong(id).putLong(grId)
+				.putInt((textBytes != null) ? textBytes.length : -1);
+		if (textBytes != null) {
+			record.put(textBytes);
+		}
+		buffer.put(appendOffset + 4, PENDING);
+		buffer.putInt(appendOffset + 5, getChecksum(buffer, appendOffset + HEADER_SIZE, length));
+		buffer.putInt(appendOffset, length);
+		if (sync) {
+			buffer.force();
+		}
+		appendOffset += HEADER_SIZE + length;
+		pendingCount++;
+		appendCount.increment();
+	}
+
+	/**
+	 * The method for reading the oldest pending writes in order of their
+	 * appending. The writes stay pending until they are passed to
+	 * markReplayed(...) method.
+	 *
+	 * @param maxCount - maximal number of returned writes.
+	 * @return List of pending writes, empty in case if there are none.
+	 */
+	public synchronized List<Entry> readPending(int maxCount) {
+		List<Entry> entries = new ArrayList<Entry>();
+		Iterator<Segment> iterator = segments.iterator();
+		Segment segment = iterator.hasNext() ? iterator.next() : null;
+		int offset = readOffset;
+		while (segment != null && entries.size() < maxCount) {
+			int length = (segment != segments.getLast() || offset < appendOffset) ? getRecordLength(segment, offset)
+					: 0;
+			if (length == 0) {
+				segment = iterator.hasNext() ? iterator.next() : null;
+				offset = 0;
+				continue;
+			}
+			if (segment.buffer.get(offset + 4) == PENDING) {
+				entries.add(readEntry(segment, offset, length));
+			}
+			offset += HEADER_SIZE + length;
+		}
+		return entries;
+	}
+
+	/**
+	 * The method for flagging writes returned by readPending(...) method as
+	 * replayed. Segments containing only replayed writes are deleted.
+	 *
+	 * @param entries - replayed writes, in the same order as they were read.
+	 */
+	public synchronized void markReplayed(List<Entry> entries) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		for (Entry entry : entries) {
+			entry.segment.buffer.put(entry.offset + 4, REPLAYED);
+			if (sync) {
+				entry.segment.buffer.force();
+			}
+		}
+		pendingCount -= entries.size();
+		Entry last = entries.get(entries.size() - 1);
+		readOffset = last.offset + HEADER_SIZE + last.length;
+		while (segments.getFirst() != last.segment) {
+			Path path = segments.removeFirst().path;
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				log.warn("Unable to delete replayed journal segment {}. {}", path, e.toString());
+			}
+		}
+	}
+
+	private void startSegment() {
+		Path path = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, nextSequence, SEGMENT_SUFFIX));
+		try {
+			segments.add(new Segment(nextSequence++, path, map(path, true)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (segments.size() == 1) {
+			readOffset = 0;
+		}
+		appendOffset = 0;
+	}
+
+	private MappedByteBuffer map(Path path, boolean create) throws IOException {
+		try (FileChannel channel = create
+				? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+						StandardOpenOption.WRITE)
+				: FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(MapMode.READ_WRITE, 0, create ? segmentSize : channel.size());
+		}
+	}
+
+	/**
+	 * Returns length of the record at provided offset, or 0 in case if there is
+	 * no complete record.
+	 */
+	private static int getRecordLength(Segment segment, int offset) {
+		MappedByteBuffer buffer = segment.buffer;
+		if (offset + HEADER_SIZE > buffer.capacity()) {
+			return 0;
+		}
+		int length = buffer.getInt(offset);
+		if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()
+				|| buffer.getInt(offset + 5) != getChecksum(buffer, offset + HEADER_SIZE, length)) {
+			return 0;
+		}
+		return length;
+	}
+
+	private static int getChecksum(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer content = buffer.duplicate();
+		content.limit(offset + length).position(offset);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		return (int) crc.getValue();
+	}
+
+	private static Entry readEntry(Segment segment, int offset, int length) {
+		ByteBuffer record = segment.buffer.duplicate();
+		record.position(offset + HEADER_SIZE);
+		Operation operation = Operation.values()[record.get()];
+		long id = record.getLong();
+		long grId = record.getLong();
+		int textLength = record.getInt();
+		String text = null;
+		if (textLength >= 0) {
+			byte[] textBytes = new byte[textLength];
+			record.get(textBytes);
+			text = new String(textBytes, StandardCharsets.UTF_8);
+		}
+		return new Entry(operation, id, text, grId, segment, offset, length);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("messages.journal.depth", this, MessageWriteJournal::getPendingCount)
+				.description("The number of journaled writes which are not replayed yet.").register(registry);
+		Gauge.builder("messages.journal.segments", segments, ArrayDeque::size)
+				.description("The number of journal segment files.").register(registry);
+		FunctionCounter.builder("messages.journal.appends", appendCount, LongAdder::sum)
+				.description("The number of writes appended to the journal.").register(registry);
+	}
+
+	/**
+	 * Journaled write returned by readPending(...) method.
+	 */
+	public static final class Entry {
+		private final Operation operation;
+		private final long id;
+		private final String text;
+		private final long grId;
+		private final Segment segment;
+		private final int offset;
+		private final int length;
+
+		private Entry(Operation operation, long id, String text, long grId, Segment segment, int offset,
+				int length) {
+			this.operation = operation;
+			this.id = id;
+			this.text = text;
+			this.grId = grId;
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public Operation getOperation() {
+			return operation;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public long getGrId() {
+			return grId;
+		}
+	}
+
+	private static final class Segment {
+		private final long sequence;
+		private final Path path;
+		private final MappedByteBuffer buffer;
+
+		private Segment(long sequence, Path path, MappedByteBuffer buffer) {
+			this.sequence = sequence;
+			this.path = path;
+			this.buffer = buffer;
+		}
+	}
+
+}
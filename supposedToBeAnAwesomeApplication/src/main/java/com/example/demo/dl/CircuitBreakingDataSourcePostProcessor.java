@@ -0,0 +1,95 @@
+package com.example.demo.dl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Post processor wrapping the DataSource bean with DatabaseCircuitBreaker.
+ * <p>
+ * Every database access of MessageService, both repository calls and its own
+ * transactions, starts with obtaining a connection, so while the breaker is
+ * open it fails within microseconds instead of waiting for the connection
+ * timeout of the pool. The rejection is reported as
+ * SQLTransientConnectionException, the same exception as a timeout of the
+ * pool, so callers get the usual CannotCreateTransactionException.
+ * <p>
+ * The breaker is enabled unless <i>message.circuit-breaker.enabled</i> is set
+ * to false.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "message.circuit-breaker.enabled", matchIfMissing = true)
+public class CircuitBreakingDataSourcePostProcessor implements BeanPostProcessor {
+
+	private final ObjectProvider<DatabaseCircuitBreaker> circuitBreaker;
+
+	/**
+	 * @param circuitBreaker - provider of the breaker, resolved when the data
+	 *                       source is created.
+	 */
+	public CircuitBreakingDataSourcePostProcessor(ObjectProvider<DatabaseCircuitBreaker> circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (!(bean instanceof DataSource)) {
+			return bean;
+		}
+		return new CircuitBreakingDataSource((DataSource) bean, circuitBreaker.getObject());
+	}
+
+	private static final class CircuitBreakingDataSource extends DelegatingDataSource {
+
+		private final DatabaseCircuitBreaker circuitBreaker;
+
+		private CircuitBreakingDataSource(DataSource targetDataSource, DatabaseCircuitBreaker circuitBreaker) {
+			super(targetDataSource);
+			this.circuitBreaker = circuitBreaker;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			acquirePermission();
+			try {
+				Connection connection = super.getConnection();
+				circuitBreaker.onSuccess();
+				return connection;
+			} catch (SQLException | RuntimeException e) {
+				circuitBreaker.onFailure(e);
+				throw e;
+			}
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			acquirePermission();
+			try {
+				Connection connection = super.getConnection(username, password);
+				circuitBreaker.onSuccess();
+				return connection;
+			} catch (SQLException | RuntimeException e) {
+				circuitBreaker.onFailure(e);
+				throw e;
+			}
+		}
+
+		private void acquirePermission() throws SQLTransientConnectionException {
+			if (!circuitBreaker.tryAcquirePermission()) {
+				throw new SQLTransientConnectionException("Database circuit breaker is open, connection is rejected");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.example.demo.dl;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Circuit breaker of connections to the database, used by
+ * CircuitBreakingDataSourcePostProcessor.
+ * <p>
+ * The breaker is <i>closed</i> while connections are obtained. After
+ * <i>message.circuit-breaker.failure-threshold</i> consecutive failures it
+ * becomes <i>open</i> and rejects all connection requests immediately, without
+ * waiting for the connection timeout of the pool. After
+ * <i>message.circuit-breaker.open-duration-ms</i> it becomes <i>half open</i>
+ * and lets a single trial request through; the breaker is closed when the
+ * trial succeeds and opened again when it fails.
+ * <p>
+ * Current state, state changes and rejected requests are exported as
+ * database.circuit.state, database.circuit.transitions and
+ * database.circuit.rejections meters.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class DatabaseCircuitBreaker implements MeterBinder {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DatabaseCircuitBreaker.class);
+
+	/**
+	 * States of the breaker.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openDurationNanos;
+
+	private volatile State state = State.CLOSED;
+	private volatile long retryAt;
+	private volatile int consecutiveFailures;
+	private boolean trialRunning;
+
+	private final LongAdder rejectedCount = new LongAdder();
+	private volatile MeterRegistry registry;
+
+	/**
+	 * @param failureThreshold - number of consecutive failures opening the
+	 *                         breaker.
+	 * @param openDurationMs   - time in milliseconds after which the open breaker
+	 *                         lets a trial request through.
+	 */
+	public DatabaseCircuitBreaker(@Value("${message.circuit-breaker.failure-threshold:3}") int failureThreshold,
+			@Value("${message.circuit-breaker.open-duration-ms:10000}") long openDurationMs) {
+		this.failureThreshold = Math.max(failureThreshold, 1);
+		this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+	}
+
+	/**
+	 * The method for asking a permission to request a connection. Every permitted
+	 * request has to be followed by onSuccess() or onFailure() call.
+	 *
+	 * @return true in case if the connection can be requested, false in case if
+	 *         the request has to be rejected.
+	 */
+	public boolean tryAcquirePermission() {
+		State current = state;
+		if (current == State.CLOSED) {
+			return true;
+		}
+		if (current == State.OPEN && retryAt - System.nanoTime() > 0) {
+			rejectedCount.increment();
+			return false;
+		}
+		synchronized (this) {
+			if (state == State.OPEN && retryAt - System.nanoTime() <= 0) {
+				transitionTo(State.HALF_OPEN);
+			}
+			if (state == State.CLOSED) {
+				return true;
+			}
+			if (state == State.HALF_OPEN && !trialRunning) {
+				trialRunning = true;
+				return true;
+			}
+		}
+		rejectedCount.increment();
+		return false;
+	}
+
+	/**
+	 * The method for reporting an obtained connection.
+	 */
+	public void onSuccess() {
+		if (state == State.CLOSED && consecutiveFailures == 0) {
+			return;
+		}
+		synchronized (this) {
+			consecutiveFailures = 0;
+			if (state == State.HALF_OPEN) {
+				trialRunning = false;
+				transitionTo(State.CLOSED);
+			}
+		}
+	}
+
+	/**
+	 * The method for reporting a failure to obtain a connection.
+	 *
+	 * @param e - exception thrown by the data source.
+	 */
+	public synchronized void onFailure(Exception e) {
+		if (state == State.HALF_OPEN) {
+			trialRunning = false;
+			open(e);
+		} else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+			open(e);
+		}
+	}
+
+	private void open(Exception e) {
+		log.warn("Database circuit breaker is opened for {} ms. {}", TimeUnit.NANOSECONDS.toMillis(openDurationNanos),
+				e.toString());
+		retryAt = System.nanoTime() + openDurationNanos;
+		transitionTo(State.OPEN);
+	}
+
+	private void transitionTo(State newState) {
+		if (state == newState) {
+			return;
+		}
+		if (newState != State.OPEN) {
+			log.info("Database circuit breaker is {}", newState);
+		}
+		consecutiveFailures = 0;
+		state = newState;
+		if (registry != null) {
+			Counter.builder("database.circuit.transitions").tag("state", newState.name().toLowerCase(Locale.ROOT))
+					.description("The number of state changes of the database circuit breaker.").register(registry)
+					.increment();
+		}
+	}
+
+	/**
+	 * @return current state of the breaker.
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return number of rejected connection requests.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (State gaugedState : State.values()) {
+			Gauge.builder("database.circuit.state", this, breaker -> breaker.getState() == gaugedState ? 1 : 0)
+					.tag("state", gaugedState.name().toLowerCase(Locale.ROOT))
+					.description("1 for the current state of the database circuit breaker.").register(registry);
+		}
+		FunctionCounter.builder("database.circuit.rejections", this, DatabaseCircuitBreaker::getRejectedCount)
+				.description("The number of connection requests rejected by the open circuit breaker.")
+				.register(registry);
+		this.registry = registry;
+	}
+
+}
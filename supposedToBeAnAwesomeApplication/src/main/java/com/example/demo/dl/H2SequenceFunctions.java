@@ -0,0 +1,64 @@
+package com.example.demo.dl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+/**
+ * Functions of PostgreSQL sequences which are missing in the embedded H2
+ * database of the <i>inmemory</i> profile, so the schema script runs on both
+ * databases. The functions are registered as aliases by INIT parameter of the
+ * H2 URL, e.g. <i>INIT=CREATE ALIAS IF NOT EXISTS setval FOR
+ * "com.example.demo.dl.H2SequenceFunctions.setval"</i>.
+ *
+ * @author serhii.shvets
+ *
+ */
+public final class H2SequenceFunctions {
+
+	private static final Pattern SEQUENCE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+	private H2SequenceFunctions() {
+	}
+
+	/**
+	 * The method for setting the value of a sequence like setval function of
+	 * PostgreSQL.
+	 *
+	 * @param connection - connection of the calling session, passed by H2.
+	 * @param sequence   - name of the sequence.
+	 * @param value      - new value of the sequence.
+	 * @param isCalled   - false in case if the next call of nextval has to return
+	 *                   the value itself, true in case if it has to return the
+	 *                   value incremented.
+	 * @return the value.
+	 * @throws SQLException in case if the sequence does not exist.
+	 */
+	public static long setval(Connection connection, String sequence, long value, boolean isCalled)
+			throws SQLException {
+		if (!SEQUENCE_NAME.matcher(sequence).matches()) {
+			throw new SQLException("Unsupported sequence name " + sequence);
+		}
+		long nextValue = value;
+		if (isCalled) {
+			try (PreparedStatement statement = connection.prepareStatement(
+					"SELECT increment FROM information_schema.sequences WHERE lower(sequence_name) = lower(?)")) {
+				statement.setString(1, sequence);
+				try (ResultSet increment = statement.executeQuery()) {
+					if (!increment.next()) {
+						throw new SQLException("Sequence " + sequence + " not found");
+					}
+					nextValue += increment.getLong(1);
+				}
+			}
+		}
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + nextValue);
+		}
+		return value;
+	}
+
+}
@@ -1,10 +1,12 @@
 package com.example.demo.dl;
 
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Size;
 
 import lombok.Getter;
@@ -12,6 +14,9 @@ import lombok.Setter;
 
 /**
  * Represents a message entity from database connected to the program.
+ * <p>
+ * m_version column is incremented by every update of a message entity, so an
+ * update can be made conditional on the version read by the client before.
  * 
  * @author serhii.shvets
  *
@@ -33,6 +38,9 @@ public class MessageEntity {
 
 	private LocalDateTime m_date;
 
+	@Version
+	private Long m_version;
+
 	/**
 	 * Setter for m_text variable of MessagEntity object.
 	 * 
@@ -106,4 +114,34 @@ public class MessageEntity {
 		return this.gr_id;
 	}
 
+	/**
+	 * Getter for m_version variable.
+	 * 
+	 * @return version of message entity as a Long type value, null for a message
+	 *         entity which is not stored yet.
+	 */
+	public Long getVersion() {
+		return this.m_version;
+	}
+
+	/**
+	 * Setter for m_version variable.
+	 * 
+	 * @param version - value of m_version variable, requires a Long type value.
+	 */
+	public void setVersion(Long version) {
+		this.m_version = version;
+	}
+
+	/**
+	 * Hash of the content of message entity, which tells apart a message entity
+	 * deleted and posted again with the same ID, since its version starts from
+	 * zero again.
+	 * 
+	 * @return hash of text, group ID and date of message entity.
+	 */
+	public int getContentHash() {
+		return Objects.hash(this.m_text, this.gr_id, this.m_date);
+	}
+
 }
@@ -1,16 +1,287 @@
 package com.example.demo.dl;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Class that represent a repository of message entities. Extends a
  * org.springframework.data.repository.CrudRepository.
- * 
+ *
  * @author serhii.shvets
  *
  */
 @Repository
 public interface MessageRepository extends CrudRepository<MessageEntity, Long> {
 
+	/**
+	 * Number of rows fetched from the database cursor per round trip by the
+	 * streaming queries.
+	 */
+	public static final String STREAM_FETCH_SIZE = "500";
+
+	/**
+	 * The method for streaming all message entities ordered by ID. The returned
+	 * Stream is backed by an open database cursor, so it has to be consumed
+	 * inside of a transaction and closed afterwards.
+	 *
+	 * @return Stream of MessageEntity objects ordered by m_id.
+	 */
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+			@QueryHint(name = HINT_READONLY, value = "true") })
+	@Query("select m from MessageEntity m order by m.m_id")
+	public Stream<MessageEntity> streamAll();
+
+	/**
+	 * The method for streaming a single page of message entities ordered by ID.
+	 * The returned Stream has to be consumed inside of a transaction and closed
+	 * afterwards.
+	 *
+	 * @param pageable - page number and page size to stream.
+	 * @return Stream of MessageEntity objects from the requested page.
+	 */
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+			@QueryHint(name = HINT_READONLY, value = "true") })
+	@Query("select m from MessageEntity m order by m.m_id")
+	public Stream<MessageEntity> streamAll(Pageable pageable);
+
+	/**
+	 * The method for keyset pagination over message entities. Returns message
+	 * entities with ID greater than provided one, ordered by ID, so the cost of
+	 * the query does not depend on how deep the page is.
+	 *
+	 * @param afterId  - ID of the last message entity of the previous page.
+	 * @param pageable - only size of the page is used, the page number has to be
+	 *                 0.
+	 * @return List of MessageEntity objects following the provided ID.
+	 */
+	@Query("select m from MessageEntity m where m.m_id > :afterId order by m.m_id")
+	public List<MessageEntity> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+	/**
+	 * The method for streaming all message entities of a group ordered by ID,
+	 * using (gr_id, m_id) index. The returned Stream has to be consumed inside of
+	 * a transaction and closed afterwards.
+	 *
+	 * @param grId - ID of the group.
+	 * @return Stream of MessageEntity objects of the group ordered by m_id.
+	 */
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+			@QueryHint(name = HINT_READONLY, value = "true") })
+	@Query("select m from MessageEntity m where m.gr_id = :grId order by m.m_id")
+	public Stream<MessageEntity> streamGroup(@Param("grId") Long grId);
+
+	/**
+	 * The method for streaming message entities posted in provided period,
+	 * ordered by date and ID, using (m_date, m_id) index. The returned Stream has
+	 * to be consumed inside of a transaction and closed afterwards.
+	 *
+	 * @param from - start of the period, inclusive.
+	 * @param to   - end of the period, exclusive.
+	 * @return Stream of MessageEntity objects ordered by m_date and m_id.
+	 */
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+			@QueryHint(name = HINT_READONLY, value = "true") })
+	@Query("select m from MessageEntity m where m.m_date >= :from and m.m_date < :to order by m.m_date, m.m_id")
+	public Stream<MessageEntity> streamDateRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+	/**
+	 * The method for streaming message entities of a group posted in provided
+	 * period, ordered by date and ID, using (gr_id, m_date, m_id) index. The
+	 * returned Stream has to be consumed inside of a transaction and closed
+	 * afterwards.
+	 *
+	 * @param grId - ID of the group.
+	 * @param from - start of the period, inclusive.
+	 * @param to   - end of the period, exclusive.
+	 * @return Stream of MessageEntity objects of the group ordered by m_date and
+	 *         m_id.
+	 */
+	@QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+			@QueryHint(name = HINT_READONLY, value = "true") })
+	@Query("select m from MessageEntity m where m.gr_id = :grId and m.m_date >= :from and m.m_date < :to "
+			+ "order by m.m_date, m.m_id")
+	public Stream<MessageEntity> streamGroupDateRange(@Param("grId") Long grId, @Param("from") LocalDateTime from,
+			@Param("to") LocalDateTime to);
+
+	/**
+	 * The method for keyset pagination over message entities posted in provided
+	 * period, ordered by date and ID, using (m_date, m_id) index. Returns message
+	 * entities following the provided date and ID, so no cursor has to be kept
+	 * open between the pages.
+	 *
+	 * @param from      - start of the period, inclusive.
+	 * @param to        - end of the period, exclusive.
+	 * @param afterDate - date of the last message entity of the previous page.
+	 * @param afterId   - ID of the last message entity of the previous page.
+	 * @param pageable  - only size of the page is used, the page number has to
+	 *                  be 0.
+	 * @return List of MessageEntity objects following the provided date and ID.
+	 */
+	@Query("select m from MessageEntity m where m.m_date >= :from and m.m_date < :to and (m.m_date > :afterDate "
+			+ "or (m.m_date = :afterDate and m.m_id > :afterId)) order by m.m_date, m.m_id")
+	public List<MessageEntity> findDateRangePageAfter(@Param("from") LocalDateTime from,
+			@Param("to") LocalDateTime to, @Param("afterDate") LocalDateTime afterDate,
+			@Param("afterId") Long afterId, Pageable pageable);
+
+	/**
+	 * The method for keyset pagination over message entities of a group posted
+	 * in provided period, ordered by date and ID, using (gr_id, m_date, m_id)
+	 * index.
+	 *
+	 * @param grId      - ID of the group.
+	 * @param from      - start of the period, inclusive.
+	 * @param to        - end of the period, exclusive.
+	 * @param afterDate - date of the last message entity of the previous page.
+	 * @param afterId   - ID of the last message entity of the previous page.
+	 * @param pageable  - only size of the page is used, the page number has to
+	 *                  be 0.
+	 * @return List of MessageEntity objects of the group following the provided
+	 *         date and ID.
+	 */
+	@Query("select m from MessageEntity m where m.gr_id = :grId and m.m_date >= :from and m.m_date < :to "
+			+ "and (m.m_date > :afterDate or (m.m_date = :afterDate and m.m_id > :afterId)) "
+			+ "order by m.m_date, m.m_id")
+	public List<MessageEntity> findGroupDateRangePageAfter(@Param("grId") Long grId,
+			@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+			@Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Pageable pageable);
+
+	/**
+	 * The method for keyset pagination over message entities of a group, using
+	 * (gr_id, m_id) index.
+	 *
+	 * @param grId     - ID of the group.
+	 * @param afterId  - ID of the last message entity of the previous page.
+	 * @param pageable - only size of the page is used, the page number has to be
+	 *                 0.
+	 * @return List of MessageEntity objects of the group following the provided
+	 *         ID.
+	 */
+	@Query("select m from MessageEntity m where m.gr_id = :grId and m.m_id > :afterId order by m.m_id")
+	public List<MessageEntity> findGroupPageAfter(@Param("grId") Long grId, @Param("afterId") Long afterId,
+			Pageable pageable);
+
+	/**
+	 * The method for counting message entities of a group, using (gr_id, m_id)
+	 * index.
+	 *
+	 * @param grId - ID of the group.
+	 * @return number of message entities of the group.
+	 */
+	@Query("select count(m) from MessageEntity m where m.gr_id = :grId")
+	public long countGroupMessages(@Param("grId") Long grId);
+
+	/**
+	 * The method for checking which of provided IDs are occupied by message
+	 * entities, using a single query.
+	 *
+	 * @param ids - IDs to check.
+	 * @return List of IDs of existing message entities.
+	 */
+	@Query("select m.m_id from MessageEntity m where m.m_id in :ids")
+	public List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * The method for reading a message entity and locking its row until the end
+	 * of the current transaction, so it is not updated or deleted meanwhile.
+	 *
+	 * @param id - ID of the message entity.
+	 * @return Optional of the locked MessageEntity, empty in case if there is no
+	 *         message entity with provided ID.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select m from MessageEntity m where m.m_id = :id")
+	public Optional<MessageEntity> findByIdForUpdate(@Param("id") Long id);
+
+	/**
+	 * The method for inserting a new message entity with a single statement, in
+	 * case if its ID is not occupied yet. Safe for concurrent inserts with the
+	 * same ID.
+	 *
+	 * @param id   - value of m_id column.
+	 * @param text - value of m_text column.
+	 * @param grId - value of gr_id column.
+	 * @param date - value of m_date column.
+	 * @return number of inserted rows: 1 if the message entity was inserted, 0 if
+	 *         the ID is already occupied.
+	 */
+	@Modifying
+	@Transactional
+	@Query(value = "INSERT INTO messages (m_id, m_text, gr_id, m_date, m_version) "
+			+ "VALUES (:id, :text, :grId, :date, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+	public int insertIfAbsent(@Param("id") Long id, @Param("text") String text, @Param("grId") Long grId,
+			@Param("date") LocalDateTime date);
+
+	/**
+	 * The method for updating the text of an existing message entity with a
+	 * single statement, keeping its group and date.
+	 *
+	 * @param id   - ID of message entity to update.
+	 * @param text - new value of m_text column.
+	 * @return number of updated rows: 1 if the message entity was updated, 0 if it
+	 *         is not existing.
+	 */
+	@Modifying
+	@Transactional
+	@Query("update MessageEntity m set m.m_text = :text, m.m_version = m.m_version + 1 where m.m_id = :id")
+	public int updateTextIfExisting(@Param("id") Long id, @Param("text") String text);
+
+	/**
+	 * The method for updating the text of a message entity with a single
+	 * compare-and-set statement, which changes the row only in case if its
+	 * version is still the expected one. No row lock is held between reading the
+	 * version and the update.
+	 *
+	 * @param id      - ID of message entity to update.
+	 * @param text    - new value of m_text column.
+	 * @param version - expected value of m_version column.
+	 * @return number of updated rows: 1 if the message entity was updated, 0 if it
+	 *         is not existing or its version is different.
+	 */
+	@Modifying
+	@Transactional
+	@Query("update MessageEntity m set m.m_text = :text, m.m_version = m.m_version + 1 "
+			+ "where m.m_id = :id and m.m_version = :version")
+	public int updateTextIfVersion(@Param("id") Long id, @Param("text") String text, @Param("version") Long version);
+
+	/**
+	 * The method for deleting a message entity with a single statement.
+	 *
+	 * @param id - ID of message entity to delete.
+	 * @return number of deleted rows: 1 if the message entity was deleted, 0 if it
+	 *         is not existing.
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from MessageEntity m where m.m_id = :id")
+	public int deleteIfExisting(@Param("id") Long id);
+
+	/**
+	 * The method for reserving a block of IDs for new message entities, with
+	 * messages_m_id_seq sequence, which is incremented by the size of the block.
+	 *
+	 * @return the first ID of the reserved block.
+	 */
+	@Transactional
+	@Query(value = "SELECT nextval('messages_m_id_seq')", nativeQuery = true)
+	public long nextIdBlock();
+
 }
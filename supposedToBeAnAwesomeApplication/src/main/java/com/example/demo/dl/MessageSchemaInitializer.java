@@ -0,0 +1,57 @@
+package com.example.demo.dl;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Initializer of the messages table and its indexes, executing the idempotent
+ * script from <i>message.schema.location</i> once the application is started.
+ * <p>
+ * Unlike schema.sql of Spring Boot the script does not prevent the application
+ * from starting when the database is not available; the failure is logged and
+ * the requests are answered with the usual database connection errors.
+ * <p>
+ * The script is compatible with the embedded H2 database of the
+ * <i>inmemory</i> profile as well.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageSchemaInitializer {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageSchemaInitializer.class);
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Value("${message.schema.location:classpath:db/messages-schema.sql}")
+	private Resource schema;
+
+	/**
+	 * The method executing the schema script, before other listeners of the
+	 * started application which may read the table.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public void initializeSchema() {
+		try {
+			DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(schema), dataSource);
+			log.info("Messages schema initialized from {}", schema);
+		} catch (DataAccessException e) {
+			log.warn("Unable to initialize messages schema from {}. {}", schema, e.toString());
+		}
+	}
+
+}
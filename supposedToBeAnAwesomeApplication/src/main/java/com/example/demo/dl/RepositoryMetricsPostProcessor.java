@@ -0,0 +1,92 @@
+package com.example.demo.dl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Post processor wrapping MessageRepository bean with a proxy which records
+ * latency of every call in <i>messages.repository</i> timer, tagged with name
+ * of the called method and simple name of the thrown exception (or none).
+ * <p>
+ * Rows of a returned Stream are fetched while the stream is consumed, so such
+ * calls are recorded once the stream is closed; exceptions thrown by the
+ * consumption are not tagged. Percentiles histograms of the timer are
+ * configured by <i>management.metrics.distribution</i> properties.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+	public static final String TIMER_NAME = "messages.repository";
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	/**
+	 * @param meterRegistry - provider of the registry, resolved at the first call
+	 *                      of the repository.
+	 */
+	public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (!(bean instanceof MessageRepository)) {
+			return bean;
+		}
+		ProxyFactory proxyFactory = new ProxyFactory(bean);
+		proxyFactory.setInterfaces(MessageRepository.class);
+		proxyFactory.addAdvice(new TimingInterceptor());
+		return proxyFactory.getProxy();
+	}
+
+	private final class TimingInterceptor implements MethodInterceptor {
+
+		private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			MeterRegistry registry = meterRegistry.getIfAvailable();
+			if (registry == null) {
+				return invocation.proceed();
+			}
+			Method method = invocation.getMethod();
+			long start = registry.config().clock().monotonicTime();
+			Object result;
+			try {
+				result = invocation.proceed();
+			} catch (Throwable e) {
+				record(registry, method, e.getClass().getSimpleName(), start);
+				throw e;
+			}
+			if (result instanceof Stream) {
+				return ((Stream<?>) result).onClose(() -> record(registry, method, "none", start));
+			}
+			record(registry, method, "none", start);
+			return result;
+		}
+
+		private void record(MeterRegistry registry, Method method, String exception, long start) {
+			timers.computeIfAbsent(method.getName() + ':' + exception,
+					key -> Timer.builder(TIMER_NAME).description("Latency of MessageRepository calls")
+							.tag("method", method.getName()).tag("exception", exception).register(registry))
+					.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.example.demo.sl;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Represents a single message of the body of postMessages request, for example
+ * <i>{"id": 1, "text": "Some text", "grId": 1}</i>.
+ * 
+ * @author serhii.shvets
+ *
+ */
+@Getter
+@Setter
+public class MessageBatchItem {
+
+	private Long id;
+
+	private String text;
+
+	private Long grId = 1L;
+
+}
@@ -1,16 +1,53 @@
 package com.example.demo.sl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriTemplate;
 
+import com.example.demo.bl.BatchInsertResult;
+import com.example.demo.bl.IndexNotReadyException;
+import com.example.demo.bl.MessageChangeFeed;
+import com.example.demo.bl.MessagePage;
 import com.example.demo.bl.MessageService;
+import com.example.demo.bl.MessageWriteJournal;
+import com.example.demo.bl.MessageWriteJournal.Operation;
 import com.example.demo.dl.MessageEntity;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -20,156 +57,910 @@ import lombok.extern.slf4j.Slf4j;
  * inside the database.<br>
  * This request is handled by showMessages() method.
  * <p>
+ * <i>Messages&#47stream?page=&limit=</i> - streams all or a page of
+ * MessageEntity objects stored inside the database.<br>
+ * This request is handled by streamMessages(int page, int limit) method.
+ * <p>
+ * <i>Messages&#47page?after=&limit=</i> - returns a page of MessageEntity
+ * objects following the provided cursor.<br>
+ * This request is handled by showMessagesPage(Long after, int limit) method.
+ * <p>
+ * <i>Messages&#47dates?from=&to=&days=</i> - streams MessageEntity objects
+ * posted in provided period of days.<br>
+ * This request is handled by streamMessagesBetween(LocalDate from, LocalDate
+ * to, int days) method, and for a single group by
+ * streamGroupMessagesBetween(int grId, ...) method
+ * (<i>Group&#47grId&#47Messages&#47dates</i>).
+ * <p>
+ * <i>Group&#47grId&#47Messages</i>, <i>Group&#47grId&#47Messages&#47page</i>,
+ * <i>Group&#47grId&#47Messages&#47count</i> - stream, page and count
+ * MessageEntity objects of the group with provided ID.<br>
+ * These requests are handled by streamGroupMessages(int grId),
+ * showGroupMessagesPage(int grId, Long after, int limit) and
+ * countGroupMessages(int grId) methods.
+ * <p>
+ * <i>search?q=&limit=</i> - returns MessageEntity objects with text matching
+ * the query.<br>
+ * This request is handled by searchMessages(String query, int limit) method.
+ * <p>
+ * <i>Messages&#47changes</i> - streams changes of MessageEntity objects as
+ * Server-Sent Events.<br>
+ * This request is handled by streamChanges(Long lastEventId) method.
+ * <p>
  * <i>Message&#47id</i> - returns data stored in MessageEntity object with
  * provided ID.<br>
  * This request is handled by getMessageById(int id) method
  * <p>
+ * Requests returning MessageEntity objects respond with JSON or CBOR when the
+ * client accepts it, handled by the methods with Structured suffix.
+ * <p>
  * <i>deleteMessage&#47id</i> - request which provides to delete the
  * MessageEntity stored inside the database with provided ID.<br>
  * This request is handled by deleteMessage(int id) method.
  * <p>
  * <i>postMessage&#47id&#47text</i> - request which provides to posting a new
  * MessageEntity object with provided parameters inside the database.<br>
- * This request is handled by postMessage(int id, String text) method.
+ * This request is handled by postMessage(int id, String text) method.<br>
+ * <i>Group&#47grId&#47postMessage&#47id&#47text</i> - the same for the group
+ * with provided ID, handled by postGroupMessage(int grId, int id, String text)
+ * method.
+ * <p>
+ * <i>postMessages</i> - request which provides to posting a batch of new
+ * MessageEntity objects sent as JSON array or newline delimited JSON.<br>
+ * This request is handled by postMessages(InputStream body) method.
+ * <p>
+ * <i>postMessage&#47text</i> and <i>Group&#47grId&#47postMessage&#47text</i> -
+ * requests posting a new MessageEntity object with an ID allocated by the
+ * application, handled by postNewMessage(String text) and
+ * postNewGroupMessage(int grId, String text) methods.
+ * <p>
+ * <i>putMessage&#47id&#47newText?version=</i> - request which provides to put
+ * an existing MessageEntity by provided ID with new text value, keeping its
+ * group and date.<br>
+ * This request is handled by putMessage(int id, String text, Long version,
+ * String ifMatch) method. The update is conditional on the version of the
+ * MessageEntity in case if it is provided, in version parameter or in If-Match
+ * header as the strong ETag of Message&#47id, and responds with HttpStatus.CONFLICT if
+ * the MessageEntity was changed meanwhile.
  * <p>
- * <i>putMessage&#47id&#47newText</i> - request which provides to put an
- * existing MessageEntity by provided ID with new text value.<br>
- * This request is handled by putMessage(int id, String text) method.
+ * When MessageWriteJournal is enabled, posts, puts and deletes which fail to
+ * connect to the database are journaled and answered with HttpStatus.ACCEPTED;
+ * while the journal has pending writes the new ones are journaled as well, so
+ * they are written to the database in order.
+ * <p>
+ * Listings are answered with an ETag derived from the number of changes
+ * counted by MessageService, and Message&#47id with an ETag derived from the
+ * message entity, so clients sending it back in If-None-Match get
+ * HttpStatus.NOT_MODIFIED, without the database being read for listings. Search results have no ETag, since the
+ * search index is built in the background.
+ * <p>
+ * The controller is not created when the <i>reactive</i> profile is active,
+ * ReactiveMessageController handles the same requests instead. It is built
+ * only with the <i>reactive</i> Maven profile, which adds WebFlux.
  * 
  * @author serhii.shvets
  *
  */
 @Slf4j // dodaj logowanie na poziomach error, debug, info
 @RestController
-
+@Profile("!reactive")
 public class MessageController implements MessagerControllerInterface {
 
 	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageController.class);
 
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	public static final String NO_MATCHING_MESSAGES = "There are no messages matching the query.\n";
+
+	private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+	/**
+	 * Entity tag of If-Match header of updates: a strong ETag of Message&#47id,
+	 * with the ID, the version and the content hash in the first three groups,
+	 * or the version alone in the fourth one.
+	 */
+	private static final Pattern IF_MATCH_ETAG = Pattern
+			.compile("\"(?:(\\d+)-(\\d+)-([0-9a-f]{1,8})-[^\"]*|(\\d+))\"");
+
 	@Autowired
 	private MessageService messageService;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MessageWriteJournal writeJournal;
+
+	@Autowired
+	private MessageChangeFeed changeFeed;
+
+	@Value("${message.batch.size:500}")
+	private int batchSize;
+
+	/**
+	 * First part of ETags of listings. Changes counted by MessageService start
+	 * from zero on every start of the application, so it starts from the start
+	 * time; it is incremented whenever a streamed listing fails after its ETag
+	 * was sent, so clients do not keep the incomplete listing.
+	 */
+	private final AtomicLong listingEpoch = new AtomicLong(System.currentTimeMillis());
+
 	@Override
 	public ResponseEntity<String> showMessages() {
 
+		String eTag = getListingETag(TEXT_PLAIN_UTF8);
+		if (isNotModified(eTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+		}
 		try {
-			String resultString = "\tMessages stored inside DB:\n\n";
+			StringBuilder resultString = new StringBuilder(MessageTextWriter.MESSAGES_HEADER);
 			List<MessageEntity> messages = (List<MessageEntity>) messageService.findAll();
 			messages.get(0);
 			for (int i = 0; i < messages.size(); i++) {
-				resultString += messageService.getDataFromMessageEntity(messages.get(i));
+				messageService.appendDataFromMessageEntity(messages.get(i), resultString);
 			}
 			log.debug("Obtained messages count: {}", messages.size());
-			return new ResponseEntity<String>(resultString, HttpStatus.OK);
+			return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).eTag(eTag).body(resultString.toString());
 		} catch (CannotCreateTransactionException e) {
-			log.error("Check database connection parameters" + e.toString());
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Check database connection parameters{}", e.toString());
 			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
 					HttpStatus.INTERNAL_SERVER_ERROR);
 		} catch (IndexOutOfBoundsException e) {
 			log.debug("There are no messages stored inside the database");
-			String resultString = "There are no messages stored inside the database.\n";
-			return new ResponseEntity<String>(resultString, HttpStatus.OK);
+			String resultString = MessageTextWriter.NO_MESSAGES;
+			return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).eTag(eTag).body(resultString);
 		} catch (Exception e) {
-			log.error("Exception caught" + e.toString());
+			log.error("Exception caught{}", e.toString());
 			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
 	}
 
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamMessages(int page, int limit) {
+		return streamMessages(writer -> messageService.forEachMessage(page, limit, writer));
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamMessagesStructured(int page, int limit, String accept) {
+		return streamStructuredMessages(accept, writer -> messageService.forEachMessage(page, limit, writer));
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamGroupMessages(int grId) {
+		return streamMessages(writer -> messageService.forEachGroupMessage(grId, writer));
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamGroupMessagesStructured(int grId, String accept) {
+		return streamStructuredMessages(accept, writer -> messageService.forEachGroupMessage(grId, writer));
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamMessagesBetween(LocalDate from, LocalDate to, int days) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = getPeriodStart(from, end, days);
+		if (start == null) {
+			return getPeriodError(from, end);
+		}
+		return streamMessages(writer -> messageService.forEachMessageBetween(start, end, writer), end.toString());
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamMessagesBetweenStructured(LocalDate from, LocalDate to,
+			int days, String accept) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = getPeriodStart(from, end, days);
+		if (start == null) {
+			return getPeriodError(from, end);
+		}
+		return streamStructuredMessages(accept, writer -> messageService.forEachMessageBetween(start, end, writer),
+				end.toString());
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamGroupMessagesBetween(int grId, LocalDate from, LocalDate to,
+			int days) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = getPeriodStart(from, end, days);
+		if (start == null) {
+			return getPeriodError(from, end);
+		}
+		return streamMessages(writer -> messageService.forEachGroupMessageBetween(grId, start, end, writer),
+				end.toString());
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> streamGroupMessagesBetweenStructured(int grId, LocalDate from,
+			LocalDate to, int days, String accept) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = getPeriodStart(from, end, days);
+		if (start == null) {
+			return getPeriodError(from, end);
+		}
+		return streamStructuredMessages(accept,
+				writer -> messageService.forEachGroupMessageBetween(grId, start, end, writer), end.toString());
+	}
+
+	/**
+	 * Used by ReactiveMessageController as well, which reads the period itself.
+	 *
+	 * @return first day of the period, or null in case if the period is not
+	 *         valid.
+	 */
+	static LocalDate getPeriodStart(LocalDate from, LocalDate end, int days) {
+		LocalDate start = (from != null) ? from : (days > 0) ? end.minusDays(days - 1) : null;
+		return (start != null && !start.isAfter(end)) ? start : null;
+	}
+
+	private ResponseEntity<StreamingResponseBody> getPeriodError(LocalDate from, LocalDate end) {
+		String resultString = (from == null) ? "Provide the first day of the period or positive number of days.\n"
+				: "The first day of the period " + from + " is after the last one " + end + ".\n";
+		log.debug("Invalid period of messages. {}", resultString);
+		return getTextResponse(resultString, HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Creates a streaming response with provided text, used for errors of
+	 * requests responding with StreamingResponseBody.
+	 */
+	private ResponseEntity<StreamingResponseBody> getTextResponse(String text, HttpStatus status) {
+		byte[] body = text.getBytes(StandardCharsets.UTF_8);
+		return ResponseEntity.status(status).contentType(TEXT_PLAIN_UTF8)
+				.body(outputStream -> outputStream.write(body));
+	}
+
+	/**
+	 * Creates a streaming response writing message entities passed to the writer
+	 * by provided read operation, tagged with the listing ETag of provided scope.
+	 */
+	private ResponseEntity<StreamingResponseBody> streamMessages(Consumer<MessageTextWriter> read,
+			String... scope) {
+		String eTag = getListingETag(TEXT_PLAIN_UTF8, scope);
+		if (isNotModified(eTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+		}
+		StreamingResponseBody body = outputStream -> {
+			MessageTextWriter writer = new MessageTextWriter(messageService, outputStream);
+			try {
+				read.accept(writer);
+				log.debug("Streamed messages count: {}", writer.getCount());
+			} catch (UncheckedIOException e) {
+				log.debug("Streaming of messages was interrupted by the client. {}", e.toString());
+				throw e.getCause();
+			} catch (CannotCreateTransactionException e) {
+				// nothing is written before the first message, so handleStreamDatabaseFailure(...) answers it
+				listingEpoch.incrementAndGet();
+				throw e;
+			}
+			writer.finish();
+		};
+		return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).eTag(eTag).body(body);
+	}
+
+	/**
+	 * Creates a streaming response writing message entities passed to the writer
+	 * by provided read operation, in the structured format preferred by the
+	 * client, tagged with the listing ETag of provided scope.
+	 */
+	private ResponseEntity<StreamingResponseBody> streamStructuredMessages(String accept,
+			Consumer<MessageStructuredWriter> read, String... scope) {
+		MediaType mediaType = MessageStructuredWriter.selectMediaType(accept);
+		String eTag = getListingETag(mediaType, scope);
+		if (isNotModified(eTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+		}
+		StreamingResponseBody body = outputStream -> {
+			MessageStructuredWriter writer = new MessageStructuredWriter(mediaType, outputStream);
+			try {
+				read.accept(writer);
+				log.debug("Streamed messages count: {}", writer.getCount());
+			} catch (UncheckedIOException e) {
+				log.debug("Streaming of messages was interrupted by the client. {}", e.toString());
+				throw e.getCause();
+			} catch (CannotCreateTransactionException e) {
+				listingEpoch.incrementAndGet();
+				throw e;
+			}
+			writer.finish();
+		};
+		return ResponseEntity.ok().contentType(mediaType).eTag(eTag).body(body);
+	}
+
+	/**
+	 * Creates a response writing provided message entities, which are already
+	 * read, in the structured format preferred by the client.
+	 */
+	private ResponseEntity<StreamingResponseBody> writeStructuredMessages(ResponseEntity.BodyBuilder response,
+			String accept, List<MessageEntity> messages) {
+		MediaType mediaType = MessageStructuredWriter.selectMediaType(accept);
+		return response.contentType(mediaType).body(outputStream -> {
+			MessageStructuredWriter writer = new MessageStructuredWriter(mediaType, outputStream);
+			try {
+				messages.forEach(writer);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			writer.finish();
+		});
+	}
+
+	/**
+	 * Answers streamed listings which failed to connect to the database. The
+	 * connection is obtained before the first message is written, so the
+	 * response is not committed yet: the status and the headers of the listing
+	 * are dropped and the error is answered like by the other requests. The
+	 * handler runs when the request is dispatched again after the stream, so the
+	 * failure is visible to MessageWebMvcTagsProvider.
+	 *
+	 * @param e        - exception thrown by the stream.
+	 * @param response - response of the listing.
+	 * @return ResponseEntity of String type with HttpStatus.INTERNAL_SERVER_ERROR.
+	 */
+	@ExceptionHandler(CannotCreateTransactionException.class)
+	public ResponseEntity<String> handleStreamDatabaseFailure(CannotCreateTransactionException e,
+			HttpServletResponse response) {
+		if (!response.isCommitted()) {
+			response.reset();
+		}
+		MessageWebMvcTagsProvider.markDatabaseFailure();
+		log.error("Check database connection parameters. {}", e.toString());
+		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(TEXT_PLAIN_UTF8)
+				.body("Check your database connection parameters.\n" + e.toString());
+	}
+
+	private ResponseEntity<StreamingResponseBody> getDatabaseError(CannotCreateTransactionException e) {
+		MessageWebMvcTagsProvider.markDatabaseFailure();
+		log.error("Check database connection parameters. {}", e.toString());
+		return getTextResponse("Check your database connection parameters.\n" + e.toString(),
+				HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
+	@Override
+	public ResponseEntity<String> showMessagesPage(Long after, int limit) {
+		return showMessagesPage(() -> messageService.findMessagesAfter(after, limit));
+	}
+
+	@Override
+	public ResponseEntity<String> showGroupMessagesPage(int grId, Long after, int limit) {
+		return showMessagesPage(() -> messageService.findGroupMessagesAfter(grId, after, limit));
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> showMessagesPageStructured(Long after, int limit, String accept) {
+		return showStructuredMessagesPage(accept, () -> messageService.findMessagesAfter(after, limit));
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> showGroupMessagesPageStructured(int grId, Long after, int limit,
+			String accept) {
+		return showStructuredMessagesPage(accept, () -> messageService.findGroupMessagesAfter(grId, after, limit));
+	}
+
+	/**
+	 * Creates a response with data of message entities of the page returned by
+	 * provided read operation.
+	 */
+	private ResponseEntity<String> showMessagesPage(Supplier<MessagePage> read) {
+		String eTag = getListingETag(TEXT_PLAIN_UTF8);
+		if (isNotModified(eTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+		}
+		try {
+			MessagePage page = read.get();
+			List<MessageEntity> messages = page.getMessages();
+			log.debug("Obtained messages count: {}, next cursor: {}", messages.size(), page.getNextCursor());
+			if (messages.isEmpty()) {
+				return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).eTag(eTag).body(MessageTextWriter.NO_MESSAGES);
+			}
+
+			StringBuilder resultString = new StringBuilder(MessageTextWriter.MESSAGES_HEADER);
+			for (MessageEntity message : messages) {
+				messageService.appendDataFromMessageEntity(message, resultString);
+			}
+			if (page.getNextCursor() == null) {
+				return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).eTag(eTag).body(resultString.toString());
+			}
+			resultString.append("Next cursor: ").append(page.getNextCursor()).append("\n");
+			return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).eTag(eTag)
+					.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString()).body(resultString.toString());
+		} catch (CannotCreateTransactionException e) {
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Check database connection parameters. {}", e.toString());
+			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
+					HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (Exception e) {
+			log.error("Exception caught. {}", e.toString());
+			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Creates a response with message entities of the page returned by provided
+	 * read operation in the structured format preferred by the client.
+	 */
+	private ResponseEntity<StreamingResponseBody> showStructuredMessagesPage(String accept,
+			Supplier<MessagePage> read) {
+		String eTag = getListingETag(MessageStructuredWriter.selectMediaType(accept));
+		if (isNotModified(eTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+		}
+		try {
+			MessagePage page = read.get();
+			log.debug("Obtained messages count: {}, next cursor: {}", page.getMessages().size(),
+					page.getNextCursor());
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+			if (page.getNextCursor() != null) {
+				response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+			}
+			return writeStructuredMessages(response, accept, page.getMessages());
+		} catch (CannotCreateTransactionException e) {
+			return getDatabaseError(e);
+		} catch (Exception e) {
+			log.error("Exception caught. {}", e.toString());
+			return getTextResponse(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	@Override
+	public ResponseEntity<String> countGroupMessages(int grId) {
+		String eTag = getListingETag(TEXT_PLAIN_UTF8);
+		if (isNotModified(eTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+		}
+		try {
+			long count = messageService.countGroupMessages(grId);
+			log.debug("Messages count of group {}: {}", grId, count);
+			return ResponseEntity.ok().eTag(eTag)
+					.body("Number of messages in group " + grId + ": " + count + "\n");
+		} catch (CannotCreateTransactionException e) {
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Check database connection parameters. {}", e.toString());
+			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
+					HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (Exception e) {
+			log.error("Exception caught. {}", e.toString());
+			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	@Override
+	public ResponseEntity<String> searchMessages(String query, int limit) {
+		if (query == null || query.trim().isEmpty()) {
+			return new ResponseEntity<String>("Provide the query.\n", HttpStatus.BAD_REQUEST);
+		}
+		try {
+			List<MessageEntity> messages = messageService.searchMessages(query, limit);
+			log.debug("Messages matching '{}' count: {}", query, messages.size());
+			if (messages.isEmpty()) {
+				return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(NO_MATCHING_MESSAGES);
+			}
+			StringBuilder resultString = new StringBuilder(MessageTextWriter.MESSAGES_HEADER);
+			for (MessageEntity message : messages) {
+				messageService.appendDataFromMessageEntity(message, resultString);
+			}
+			return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(resultString.toString());
+		} catch (IndexNotReadyException e) {
+			log.warn("Search is not available yet. {}", e.toString());
+			return new ResponseEntity<String>("Search index is being built, try again later.\n",
+					HttpStatus.SERVICE_UNAVAILABLE);
+		} catch (CannotCreateTransactionException e) {
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Check database connection parameters. {}", e.toString());
+			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
+					HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (Exception e) {
+			log.error("Exception caught. {}", e.toString());
+			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> searchMessagesStructured(String query, int limit, String accept) {
+		if (query == null || query.trim().isEmpty()) {
+			return getTextResponse("Provide the query.\n", HttpStatus.BAD_REQUEST);
+		}
+		try {
+			List<MessageEntity> messages = messageService.searchMessages(query, limit);
+			log.debug("Messages matching '{}' count: {}", query, messages.size());
+			return writeStructuredMessages(ResponseEntity.ok(), accept, messages);
+		} catch (IndexNotReadyException e) {
+			log.warn("Search is not available yet. {}", e.toString());
+			return getTextResponse("Search index is being built, try again later.\n", HttpStatus.SERVICE_UNAVAILABLE);
+		} catch (CannotCreateTransactionException e) {
+			return getDatabaseError(e);
+		} catch (Exception e) {
+			log.error("Exception caught. {}", e.toString());
+			return getTextResponse(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	@Override
+	public SseEmitter streamChanges(Long lastEventId) {
+		SseEmitter emitter = new SseEmitter();
+		MessageChangeFeed.Subscription subscription = changeFeed.subscribe(lastEventId, event -> {
+			try {
+				emitter.send(SseEmitter.event().id(Long.toString(event.getSequence()))
+						.name(event.getType().name().toLowerCase(Locale.ROOT))
+						.data(MessageStructuredWriter.writeChange(event)));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, emitter::complete);
+		emitter.onCompletion(subscription::cancel);
+		emitter.onTimeout(subscription::cancel);
+		log.debug("Subscribed to changes of messages after event {}", lastEventId);
+		return emitter;
+	}
+
 	@Override
 	public ResponseEntity<String> postMessage(int id, String text) {
+		return postGroupMessage(1, id, text);
+	}
+
+	@Override
+	public ResponseEntity<String> postGroupMessage(int grId, int id, String text) {
+		if (writeJournal.hasPendingWrites()) {
+			return journalWrite(Operation.POST, id, text, grId);
+		}
 		try {
-			if (!messageService.checkMessageIfExixting(id)) {
+			MessageEntity message = messageService.postMessageIfAbsent(id, text, grId);
+			if (message != null) {
 				String resultString = "Created new message with the following parameters:\n";
-				MessageEntity message = messageService.postMessage(id, text, 1);
-				log.debug("Posted new message with id= " + message.getMesId());
+				log.debug("Posted new message with id= {}", message.getMesId());
 				return new ResponseEntity<String>(resultString + messageService.getDataFromMessageEntity(message),
 						HttpStatus.CREATED);
 
 			} else {
-				log.debug("Unable to post a new message with ID " + id
-						+ " since message with provided ID is already exists.");
+				log.debug("Unable to post a new message with ID {} since message with provided ID is already exists.",
+						id);
 				return new ResponseEntity<String>("Unable to post a new message with ID " + id
 						+ " since message with provided ID is already exists.", HttpStatus.BAD_REQUEST);
 			}
 
 		} catch (CannotCreateTransactionException e) {
-			log.error("Wrong database connection parameters. " + e.toString());
+			if (writeJournal.isEnabled()) {
+				return journalWrite(Operation.POST, id, text, grId);
+			}
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Wrong database connection parameters. {}", e.toString());
+			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
+					HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (Exception e) {
+			log.error("Exception caught{}", e.toString());
+			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	@Override
+	public ResponseEntity<String> postNewMessage(String text) {
+		return postNewGroupMessage(1, text);
+	}
+
+	@Override
+	public ResponseEntity<String> postNewGroupMessage(int grId, String text) {
+		try {
+			MessageEntity message = messageService.postNewMessage(text, grId);
+			log.debug("Posted new message with allocated id= {}", message.getMesId());
+			return ResponseEntity.created(new UriTemplate(MESSAGE_PATH).expand(message.getMesId()))
+					.body("Created new message with the following parameters:\n"
+							+ messageService.getDataFromMessageEntity(message));
+		} catch (CannotCreateTransactionException e) {
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Wrong database connection parameters. {}", e.toString());
 			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
 					HttpStatus.INTERNAL_SERVER_ERROR);
 		} catch (Exception e) {
-			log.error("Exception caught" + e.toString());
+			log.error("Exception caught{}", e.toString());
 			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
 	}
 
 	@Override
-	public ResponseEntity<String> putMessage(int id, String text) {
+	public ResponseEntity<String> postMessages(InputStream body) {
+		if (writeJournal.hasPendingWrites()) {
+			log.warn("Unable to post a batch of messages while journaled writes are pending");
+			return new ResponseEntity<String>("Unable to post a batch of messages while the database is not available,"
+					+ " try again later.\n", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		BatchInsertResult result = new BatchInsertResult();
+		int skippedCount = 0;
+		try (MappingIterator<MessageBatchItem> items = objectMapper.readerFor(MessageBatchItem.class)
+				.readValues(body)) {
+			List<MessageEntity> batch = new ArrayList<MessageEntity>(batchSize);
+			while (items.hasNextValue()) {
+				MessageBatchItem item = items.nextValue();
+				if (item.getId() == null || item.getText() == null) {
+					skippedCount++;
+					continue;
+				}
+				MessageEntity message = new MessageEntity();
+				message.setMesId(item.getId());
+				message.setText(item.getText());
+				message.setGrId((item.getGrId() != null) ? item.getGrId() : 1L);
+				batch.add(message);
+				if (batch.size() == batchSize) {
+					result.merge(postBatch(batch));
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				result.merge(postBatch(batch));
+			}
+			log.debug("Posted a batch of {} new messages, {} occupied IDs, {} skipped messages.",
+					result.getInsertedCount(), result.getConflictingIds().size(), skippedCount);
+			return new ResponseEntity<String>(getBatchReport(result, skippedCount),
+					(result.getConflictingIds().isEmpty() && skippedCount == 0) ? HttpStatus.CREATED
+							: (result.getInsertedCount() > 0) ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
+
+		} catch (JsonProcessingException e) {
+			log.debug("Unable to read a batch of messages. {}", e.toString());
+			return new ResponseEntity<String>(
+					"Unable to read a batch of messages.\n" + e.getOriginalMessage() + "\n"
+							+ getBatchReport(result, skippedCount),
+					HttpStatus.BAD_REQUEST);
+		} catch (CannotCreateTransactionException e) {
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Wrong database connection parameters. {}", e.toString());
+			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString() + "\n"
+					+ getBatchReport(result, skippedCount), HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (Exception e) {
+			log.error("Exception caught. {}", e.toString());
+			return new ResponseEntity<String>(e.toString() + "\n" + getBatchReport(result, skippedCount),
+					HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Posts a batch of messages. If a message with one of the IDs was posted
+	 * concurrently after the check of occupied IDs, the batch is posted once
+	 * again, so the new conflict is reported.
+	 */
+	private BatchInsertResult postBatch(List<MessageEntity> batch) {
+		try {
+			return messageService.postMessages(batch);
+		} catch (DataIntegrityViolationException e) {
+			log.debug("Batch of messages was posted concurrently, retrying. {}", e.toString());
+			return messageService.postMessages(batch);
+		}
+	}
+
+	private String getBatchReport(BatchInsertResult result, int skippedCount) {
+		StringBuilder report = new StringBuilder("Posted new messages count: ").append(result.getInsertedCount())
+				.append("\n");
+		if (!result.getConflictingIds().isEmpty()) {
+			report.append("Unable to post new messages with the following IDs since messages with provided IDs")
+					.append(" are already exist: ").append(result.getConflictingIds()).append("\n");
+		}
+		if (skippedCount > 0) {
+			report.append("Skipped messages without ID or text count: ").append(skippedCount).append("\n");
+		}
+		return report.toString();
+	}
+
+	@Override
+	public ResponseEntity<String> putMessage(int id, String text, Long version, String ifMatch) {
+		Long expectedVersion = version;
+		Integer expectedHash = null;
+		try {
+			Matcher matcher = (version == null) ? matchIfMatch(id, ifMatch) : null;
+			if (matcher != null && matcher.group(4) != null) {
+				expectedVersion = Long.valueOf(matcher.group(4));
+			} else if (matcher != null) {
+				expectedVersion = Long.valueOf(matcher.group(2));
+				expectedHash = Integer.parseUnsignedInt(matcher.group(3), 16);
+			}
+		} catch (IllegalArgumentException e) {
+			log.debug("Unusable If-Match header of update of message with ID {}. {}", id, e.getMessage());
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		}
+		if (writeJournal.hasPendingWrites()) {
+			if (expectedVersion != null) {
+				return getJournaledVersionError(id);
+			}
+			return journalWrite(Operation.PUT, id, text, 1);
+		}
 		try {
-			if (messageService.checkMessageIfExixting(id)) {
-				MessageEntity message = messageService.postMessage(id, text, 1);
+			MessageEntity message = (expectedHash != null)
+					? messageService.updateMessageTextIfMatch(id, text, expectedVersion, expectedHash)
+					: messageService.updateMessageText(id, text, expectedVersion);
+			if (message != null) {
 				log.debug("Message was updated successfully.");
-				return new ResponseEntity<String>(
-						"Message updated successfully :\n" + messageService.getDataFromMessageEntity(message),
-						HttpStatus.OK);
+				return ResponseEntity.ok().eTag(getMessageETag(message, TEXT_PLAIN_UTF8))
+						.body("Message updated successfully :\n" + messageService.getDataFromMessageEntity(message));
 
 			} else {
-				log.debug("Unable to update a new message with ID " + id + " since such message is not existing");
+				log.debug("Unable to update a new message with ID {} since such message is not existing", id);
 				return new ResponseEntity<String>(
 						"Unable to update a new message with ID " + id + " since such message is not existing",
 						HttpStatus.NOT_FOUND);
 			}
 
+		} catch (OptimisticLockingFailureException e) {
+			log.debug("Unable to update message with ID {} of version {}. {}", id, expectedVersion, e.getMessage());
+			return new ResponseEntity<String>("Unable to update message with ID " + id + " since it was changed, "
+					+ ((expectedHash != null) ? "it is not the one of ETag of version " : "its version is not ")
+					+ expectedVersion + ". Read the message again and retry.", HttpStatus.CONFLICT);
 		} catch (CannotCreateTransactionException e) {
-			log.error("Wrong database connection parameters. " + e.toString());
+			if (expectedVersion != null) {
+				return getJournaledVersionError(id);
+			}
+			if (writeJournal.isEnabled()) {
+				return journalWrite(Operation.PUT, id, text, 1);
+			}
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Wrong database connection parameters. {}", e.toString());
 			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
 					HttpStatus.INTERNAL_SERVER_ERROR);
 		} catch (Exception e) {
-			log.error("Exception caught. " + e.toString());
+			log.error("Exception caught. {}", e.toString());
 			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
 	}
 
+	/**
+	 * Matches If-Match header, which contains a strong ETag of Message&#47id of
+	 * provided ID, or the version alone in quotes. Weak ETags are refused, since
+	 * they never match by the strong comparison of If-Match.
+	 *
+	 * @return the matched header, or null in case if there is no header or it
+	 *         matches any version.
+	 * @throws IllegalArgumentException in case if the header does not contain a
+	 *                                  single strong ETag of the message entity.
+	 */
+	private Matcher matchIfMatch(int id, String ifMatch) {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		Matcher matcher = IF_MATCH_ETAG.matcher(ifMatch.trim());
+		if (!matcher.matches() || (matcher.group(1) != null && Long.parseLong(matcher.group(1)) != id)) {
+			throw new IllegalArgumentException("If-Match header has to contain a single strong ETag of message with"
+					+ " ID " + id + ", or its version in quotes.");
+		}
+		return matcher;
+	}
+
+	/**
+	 * Response to a conditional update which can not be checked against the
+	 * database, so it can not be journaled either.
+	 */
+	private ResponseEntity<String> getJournaledVersionError(int id) {
+		log.warn("Unable to check version of message with ID {} without the database", id);
+		return new ResponseEntity<String>("Unable to update message with ID " + id
+				+ " of provided version while the database is not available, try again later.\n",
+				HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
 	@Override
 	public ResponseEntity<String> deleteMessage(int id) {
+		if (writeJournal.hasPendingWrites()) {
+			return journalWrite(Operation.DELETE, id, null, 1);
+		}
 		try {
-			if (messageService.checkMessageIfExixting(id)) {
-				messageService.deleteMessage(id);
-				log.debug("Message with id " + id + " was deleted successfully");
+			if (messageService.deleteMessageIfExisting(id)) {
+				log.debug("Message with id {} was deleted successfully", id);
 				return new ResponseEntity<String>("Message with id " + id + " was deleted successfully :\n",
 						HttpStatus.OK);
 
 			} else {
-				log.debug("Unable to delete a message with ID " + id + " since such message is not existing.");
+				log.debug("Unable to delete a message with ID {} since such message is not existing.", id);
 				return new ResponseEntity<String>(
 						"Unable to delete a message with ID " + id + " since such message is not existing.\n",
 						HttpStatus.NOT_FOUND);
 			}
 
 		} catch (CannotCreateTransactionException e) {
+			if (writeJournal.isEnabled()) {
+				return journalWrite(Operation.DELETE, id, null, 1);
+			}
+			MessageWebMvcTagsProvider.markDatabaseFailure();
 			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
 					HttpStatus.INTERNAL_SERVER_ERROR);
 		} catch (Exception e) {
-			log.error("Exception caught. " + e.toString());
+			log.error("Exception caught. {}", e.toString());
+			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Appends the write to the journal, to be replayed once the database is
+	 * available, and creates HttpStatus.ACCEPTED response.
+	 */
+	private ResponseEntity<String> journalWrite(Operation operation, int id, String text, int grId) {
+		try {
+			writeJournal.append(operation, id, text, grId);
+		} catch (RuntimeException e) {
+			log.error("Unable to journal {} of message with id {}. {}", operation, id, e.toString());
 			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
+		log.debug("{} of message with id {} is journaled", operation, id);
+		return new ResponseEntity<String>(
+				operation + " of message with ID " + id + " is accepted and will be written to the database later.\n",
+				HttpStatus.ACCEPTED);
 	}
 
 	@Override
 	public ResponseEntity<String> getMessageById(int id) {
 		try {
-			return new ResponseEntity<String>(
-					messageService.getDataFromMessageEntity(messageService.getMessageById(id)), HttpStatus.OK);
+			MessageEntity message = messageService.getMessageById(id);
+			String eTag = getMessageETag(message, TEXT_PLAIN_UTF8);
+			if (isNotModified(eTag)) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+			}
+			return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).eTag(eTag)
+					.body(messageService.appendDataFromMessageEntity(message, new StringBuilder(128)).toString());
 		} catch (NullPointerException e) {
-			log.debug("Message with ID " + id + " isnt exeisting yet");
+			log.debug("Message with ID {} isnt exeisting yet", id);
 			return new ResponseEntity<String>("Message with ID " + id + " isnt exeisting yet", HttpStatus.NOT_FOUND);
 		} catch (CannotCreateTransactionException e) {
-			log.error("Wrong database connection parameters. " + e.toString());
+			MessageWebMvcTagsProvider.markDatabaseFailure();
+			log.error("Wrong database connection parameters. {}", e.toString());
 			return new ResponseEntity<String>("Check your database connection parameters.\n" + e.toString(),
 					HttpStatus.INTERNAL_SERVER_ERROR);
 		} catch (Exception e) {
-			log.error("Exception caught. " + e.toString());
+			log.error("Exception caught. {}", e.toString());
 			return new ResponseEntity<String>(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
 	}
 
+	@Override
+	public ResponseEntity<StreamingResponseBody> getMessageByIdStructured(int id, String accept) {
+		try {
+			MessageEntity message = messageService.getMessageById(id);
+			if (message == null) {
+				log.debug("Message with ID {} isnt exeisting yet", id);
+				return getTextResponse("Message with ID " + id + " isnt exeisting yet", HttpStatus.NOT_FOUND);
+			}
+			MediaType mediaType = MessageStructuredWriter.selectMediaType(accept);
+			String eTag = getMessageETag(message, mediaType);
+			if (isNotModified(eTag)) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+			}
+			return ResponseEntity.ok().contentType(mediaType).eTag(eTag)
+					.body(outputStream -> new MessageStructuredWriter(mediaType, outputStream).writeSingle(message));
+		} catch (CannotCreateTransactionException e) {
+			return getDatabaseError(e);
+		} catch (Exception e) {
+			log.error("Exception caught. {}", e.toString());
+			return getTextResponse(e.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/**
+	 * Creates a weak ETag of a listing in provided format, which changes with
+	 * every change of the message table counted by MessageService. Listings
+	 * depending on the current date add it to the scope.
+	 */
+	private String getListingETag(MediaType mediaType, String... scope) {
+		StringBuilder eTag = new StringBuilder("W/\"").append(Long.toHexString(listingEpoch.get())).append('-')
+				.append(messageService.getChangeCount()).append('-').append(mediaType.getSubtype());
+		for (String part : scope) {
+			eTag.append('-').append(part);
+		}
+		return eTag.append('"').toString();
+	}
+
+	/**
+	 * Creates a strong ETag of the message entity in provided format, derived
+	 * from its ID, version and content hash, since the date keeps only the day of
+	 * the last write. For the same reason there is no Last-Modified header. The
+	 * ETag is strong, so it can be sent back in If-Match; the responses are
+	 * shorter than the minimal size of compressed responses.
+	 */
+	private String getMessageETag(MessageEntity message, MediaType mediaType) {
+		// the version and the hash are read back from If-Match, the hash tells apart a message posted again
+		return "\"" + message.getMesId() + '-' + message.getVersion() + '-'
+				+ Integer.toHexString(message.getContentHash()) + '-' + mediaType.getSubtype() + '"';
+	}
+
+	/**
+	 * Checks whether the client of the current request already has the response
+	 * with provided ETag. Does nothing outside of a servlet request, WebFlux
+	 * checks the responses of ReactiveMessageController itself.
+	 */
+	private boolean isNotModified(String eTag) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		return attributes instanceof ServletRequestAttributes
+				&& new ServletWebRequest(((ServletRequestAttributes) attributes).getRequest()).checkNotModified(eTag);
+	}
+
 }
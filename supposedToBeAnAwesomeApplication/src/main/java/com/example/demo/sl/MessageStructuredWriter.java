@@ -0,0 +1,194 @@
+package com.example.demo.sl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.http.MediaType;
+
+import com.example.demo.bl.MessageChangeEvent;
+import com.example.demo.dl.MessageEntity;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Writer of message entities as an array of objects in shape of <i>{"id": 1,
+ * "text": "Some text", "grId": 1, "date": "2019-03-01T00:00"}</i>, encoded as
+ * JSON or as CBOR, the binary equivalent of JSON. Like MessageTextWriter it is
+ * designed to be used as an action of MessageServiceInterface.forEachMessage
+ * (...) method: every message is written by a Jackson generator as soon as it
+ * is passed to the writer, without data binding and intermediate Strings.
+ * <p>
+ * IOExceptions thrown by the underlying output are rethrown as
+ * UncheckedIOException.
+ *
+ * @author serhii.shvets
+ *
+ */
+public class MessageStructuredWriter implements Consumer<MessageEntity> {
+
+	public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+	public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final JsonFactory CBOR_FACTORY = new CBORFactory();
+
+	private final JsonGenerator generator;
+	private LocalDateTime lastDate;
+	private String lastDateText;
+	private int count;
+
+	/**
+	 * @param mediaType    - APPLICATION_CBOR for CBOR, JSON otherwise.
+	 * @param outputStream - output stream the encoded messages are written to.
+	 * @throws IOException in case of troubles with the output.
+	 */
+	public MessageStructuredWriter(MediaType mediaType, OutputStream outputStream) throws IOException {
+		JsonFactory factory = APPLICATION_CBOR.includes(mediaType) ? CBOR_FACTORY : JSON_FACTORY;
+		this.generator = factory.createGenerator(outputStream, JsonEncoding.UTF8)
+				.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	private MessageStructuredWriter(JsonGenerator generator) {
+		this.generator = generator;
+	}
+
+	/**
+	 * Selects the structured format preferred by the client.
+	 *
+	 * @param accept - value of Accept header, may be null.
+	 * @return APPLICATION_CBOR in case if it is preferred over JSON, otherwise
+	 *         MediaType.APPLICATION_JSON_UTF8.
+	 */
+	public static MediaType selectMediaType(String accept) {
+		if (accept != null) {
+			List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+			MediaType.sortBySpecificityAndQuality(mediaTypes);
+			for (MediaType mediaType : mediaTypes) {
+				if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+					break;
+				}
+				if (mediaType.isCompatibleWith(APPLICATION_CBOR)) {
+					return APPLICATION_CBOR;
+				}
+			}
+		}
+		return MediaType.APPLICATION_JSON_UTF8;
+	}
+
+	/**
+	 * Writes provided MessageEntity object as an element of the array. The start
+	 * of the array is written before the first message.
+	 *
+	 * @param message - MessageEntity to write.
+	 */
+	@Override
+	public void accept(MessageEntity message) {
+		try {
+			if (count == 0) {
+				generator.writeStartArray();
+			}
+			writeMessage(message);
+			count++;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes provided MessageEntity object alone, instead of an array, and
+	 * flushes it to the output.
+	 *
+	 * @param message - MessageEntity to write.
+	 * @throws IOException in case of troubles with the output.
+	 */
+	public void writeSingle(MessageEntity message) throws IOException {
+		writeMessage(message);
+		generator.flush();
+	}
+
+	/**
+	 * Flushes the messages written so far to the output, without finishing the
+	 * array.
+	 *
+	 * @throws IOException in case of troubles with the output.
+	 */
+	public void flush() throws IOException {
+		generator.flush();
+	}
+
+	/**
+	 * Finishes the array, which is empty in case if no messages were written, and
+	 * flushes it to the output.
+	 *
+	 * @throws IOException in case of troubles with the output.
+	 */
+	public void finish() throws IOException {
+		if (count == 0) {
+			generator.writeStartArray();
+		}
+		generator.writeEndArray();
+		generator.flush();
+	}
+
+	/**
+	 * Writes the changed message entity of provided MessageChangeEvent as a JSON
+	 * object, which contains only the ID for deletes and is empty for resets.
+	 *
+	 * @param event - MessageChangeEvent to write.
+	 * @return JSON object.
+	 */
+	public static String writeChange(MessageChangeEvent event) {
+		StringWriter json = new StringWriter(128);
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+			if (event.getMessage() != null) {
+				new MessageStructuredWriter(generator).writeMessage(event.getMessage());
+			} else {
+				generator.writeStartObject();
+				if (event.getId() != null) {
+					generator.writeNumberField("id", event.getId().longValue());
+				}
+				generator.writeEndObject();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return json.toString();
+	}
+
+	private void writeMessage(MessageEntity message) throws IOException {
+		generator.writeStartObject();
+		writeNumberField("id", message.getMesId());
+		generator.writeStringField("text", message.getText());
+		writeNumberField("grId", message.getGrId());
+		LocalDateTime date = message.getDate();
+		if (date != null && !date.equals(lastDate)) {
+			lastDate = date;
+			lastDateText = date.toString();
+		}
+		generator.writeStringField("date", (date != null) ? lastDateText : null);
+		generator.writeEndObject();
+	}
+
+	private void writeNumberField(String name, Long value) throws IOException {
+		if (value != null) {
+			generator.writeNumberField(name, value.longValue());
+		} else {
+			generator.writeNullField(name);
+		}
+	}
+
+	/**
+	 * @return number of messages written so far.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.example.demo.sl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import com.example.demo.bl.MessageServiceInterface;
+import com.example.demo.dl.MessageEntity;
+
+/**
+ * Writer of message entities in the same readable text shape as returned by
+ * MessageController.showMessages(), designed to be used as an action of
+ * MessageServiceInterface.forEachMessage(...) method. Every message is written
+ * to the output as soon as it is passed to the writer, so no list of messages
+ * is held in memory.
+ * <p>
+ * Messages are rendered into a single reusable buffer which is copied to the
+ * output when it grows over FLUSH_THRESHOLD characters, so writing a message
+ * does not allocate intermediate Strings.
+ * <p>
+ * IOExceptions thrown by the underlying output are rethrown as
+ * UncheckedIOException.
+ *
+ * @author serhii.shvets
+ *
+ */
+public class MessageTextWriter implements Consumer<MessageEntity> {
+
+	public static final String MESSAGES_HEADER = "\tMessages stored inside DB:\n\n";
+	public static final String NO_MESSAGES = "There are no messages stored inside the database.\n";
+
+	private static final int FLUSH_THRESHOLD = 8192;
+
+	private final MessageServiceInterface messageService;
+	private final Writer writer;
+	private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+	private char[] chars = new char[FLUSH_THRESHOLD + 256];
+	private int count;
+
+	/**
+	 * @param messageService - service used to convert MessageEntity objects to
+	 *                       text.
+	 * @param outputStream   - output stream the UTF-8 encoded text is written to.
+	 */
+	public MessageTextWriter(MessageServiceInterface messageService, OutputStream outputStream) {
+		this.messageService = messageService;
+		this.writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes data of provided MessageEntity object. The header of the listing is
+	 * written before the first message.
+	 *
+	 * @param message - MessageEntity to write.
+	 */
+	@Override
+	public void accept(MessageEntity message) {
+		if (count == 0) {
+			buffer.append(MESSAGES_HEADER);
+		}
+		messageService.appendDataFromMessageEntity(message, buffer);
+		count++;
+		if (buffer.length() >= FLUSH_THRESHOLD) {
+			try {
+				flushBuffer();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Finishes the listing, writing a notice in case if no messages were written,
+	 * and flushes the buffered text to the output.
+	 *
+	 * @throws IOException in case of troubles with the output.
+	 */
+	public void finish() throws IOException {
+		if (count == 0) {
+			buffer.append(NO_MESSAGES);
+		}
+		flushBuffer();
+		writer.flush();
+	}
+
+	private void flushBuffer() throws IOException {
+		int length = buffer.length();
+		if (chars.length < length) {
+			chars = new char[length];
+		}
+		buffer.getChars(0, length, chars, 0);
+		writer.write(chars, 0, length);
+		buffer.setLength(0);
+	}
+
+	/**
+	 * @return number of messages written so far.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+}
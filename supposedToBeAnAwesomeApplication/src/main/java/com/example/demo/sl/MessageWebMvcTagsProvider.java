@@ -0,0 +1,55 @@
+package com.example.demo.sl;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Provider of tags of http.server.requests timers. Keeps the default tags of
+ * Spring Boot (<i>method</i>, <i>uri</i>, <i>status</i>, <i>exception</i> and
+ * <i>outcome</i>), except the <i>outcome</i> of a request failed because of
+ * troubles with the database connection, which is DB_CONNECTION_FAILURE
+ * instead of SERVER_ERROR.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Component
+public class MessageWebMvcTagsProvider extends DefaultWebMvcTagsProvider {
+
+	public static final String DATABASE_FAILURE_OUTCOME = "DB_CONNECTION_FAILURE";
+
+	private static final String DATABASE_FAILURE_ATTRIBUTE = MessageWebMvcTagsProvider.class.getName()
+			+ ".DATABASE_FAILURE";
+
+	/**
+	 * The method for marking the current request as failed because of troubles
+	 * with the database connection. Does nothing when called outside of a
+	 * request.
+	 */
+	public static void markDatabaseFailure() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.setAttribute(DATABASE_FAILURE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	@Override
+	public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Throwable exception) {
+		Tags tags = Tags.of(super.getTags(request, response, handler, exception));
+		if (request.getAttribute(DATABASE_FAILURE_ATTRIBUTE) != null) {
+			// a tag with the same key replaces the default one
+			return tags.and(Tag.of("outcome", DATABASE_FAILURE_OUTCOME));
+		}
+		return tags;
+	}
+
+}
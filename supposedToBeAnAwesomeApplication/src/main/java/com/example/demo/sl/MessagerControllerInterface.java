@@ -1,17 +1,35 @@
 package com.example.demo.sl;
 
+import java.io.InputStream;
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * 
  * Interface for MessageController designed to handle a Http requests directed
  * to the application.
+ * <p>
+ * Requests returning message entities respond with readable text by default.
+ * Clients accepting application/json or application/cbor receive the same
+ * message entities as an array of objects encoded by MessageStructuredWriter
+ * instead, handled by the methods with Structured suffix. The text is always
+ * sent as text/plain, even to browsers asking for text/html, so texts of
+ * messages are never rendered as markup.
  * 
  * @author serhii.shvets
  *
@@ -19,37 +37,431 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public interface MessagerControllerInterface {
 
+	/*
+	 * Routes of the requests, shared with ReactiveMessageController and the tests,
+	 * so both controllers serve the same routes.
+	 */
+	public static final String MESSAGES_PATH = "/Messages";
+	public static final String MESSAGES_STREAM_PATH = "/Messages/stream";
+	public static final String MESSAGES_PAGE_PATH = "/Messages/page";
+	public static final String MESSAGES_DATES_PATH = "/Messages/dates";
+	public static final String MESSAGES_CHANGES_PATH = "/Messages/changes";
+	public static final String GROUP_MESSAGES_PATH = "/Group/{grId}/Messages";
+	public static final String GROUP_MESSAGES_PAGE_PATH = "/Group/{grId}/Messages/page";
+	public static final String GROUP_MESSAGES_COUNT_PATH = "/Group/{grId}/Messages/count";
+	public static final String GROUP_MESSAGES_DATES_PATH = "/Group/{grId}/Messages/dates";
+	public static final String SEARCH_PATH = "/search";
+	public static final String MESSAGE_PATH = "/Message/{id}";
+	public static final String POST_MESSAGE_PATH = "/postMessage/{id}/{text}";
+	public static final String POST_GROUP_MESSAGE_PATH = "/Group/{grId}/postMessage/{id}/{text}";
+	public static final String POST_NEW_MESSAGE_PATH = "/postMessage/{text}";
+	public static final String POST_NEW_GROUP_MESSAGE_PATH = "/Group/{grId}/postMessage/{text}";
+	public static final String POST_MESSAGES_PATH = "/postMessages";
+	public static final String PUT_MESSAGE_PATH = "/putMessage/{id}/{text}";
+	public static final String DELETE_MESSAGE_PATH = "/deleteMessage/{id}";
+
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
 	/**
 	 * Request handler for accessing a message entities stored in the database.
 	 * 
 	 * @return ResponseEntity of String type with data of all message entity stored
 	 *         inside the database.
 	 */
-	@GetMapping("/Messages")
+	@GetMapping(value = MESSAGES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
 	public ResponseEntity<String> showMessages();
 
 	/**
-	 * Request handler for posting a new message entity to the database.
+	 * Request handler for streaming message entities stored in the database. Data
+	 * of every message entity is written to the response as soon as it is read
+	 * from the database, so the memory usage does not depend on the number of
+	 * stored message entities.
+	 * 
+	 * @param page  - number of page to return, starting from 0. Accepts int data
+	 *              type.
+	 * @param limit - maximal number of message entities to return. Accepts int
+	 *              data type, 0 means that all message entities are returned.
+	 * @return ResponseEntity of StreamingResponseBody type writing the same text
+	 *         as showMessages() method.
+	 */
+	@GetMapping(value = MESSAGES_STREAM_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamMessages(
+			@RequestParam(name = "page", required = false, defaultValue = "0") int page,
+			@RequestParam(name = "limit", required = false, defaultValue = "0") int limit);
+
+	/**
+	 * Request handler for streaming all or a page of message entities as JSON or
+	 * CBOR, chosen by Accept header.
+	 * 
+	 * @param page   - number of page to return, starting from 0. Accepts int data
+	 *               type.
+	 * @param limit  - maximal number of message entities to return. Accepts int
+	 *               data type, 0 means that all message entities are returned.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type writing an array of
+	 *         message entities.
+	 */
+	@GetMapping(value = { MESSAGES_PATH, MESSAGES_STREAM_PATH }, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamMessagesStructured(
+			@RequestParam(name = "page", required = false, defaultValue = "0") int page,
+			@RequestParam(name = "limit", required = false, defaultValue = "0") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
+	/**
+	 * Request handler for accessing a page of message entities following the
+	 * message entity with provided ID (keyset pagination). The cursor of the next
+	 * page is returned in X-Next-Cursor header and in the last line of the body;
+	 * both are missing when there are no more message entities.
+	 * 
+	 * @param after - cursor of the page, ID of the last message entity of the
+	 *              previous page. Accepts Long data type, not required.
+	 * @param limit - maximal number of message entities in the page. Accepts int
+	 *              data type.
+	 * @return ResponseEntity of String type with data of message entities of the
+	 *         page.
+	 */
+	@GetMapping(value = MESSAGES_PAGE_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public ResponseEntity<String> showMessagesPage(@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit);
+
+	/**
+	 * Request handler for accessing a page of message entities as JSON or CBOR,
+	 * in the same way as showMessagesPage(...) method. The cursor of the next
+	 * page is returned only in X-Next-Cursor header.
+	 * 
+	 * @param after  - cursor of the page, ID of the last message entity of the
+	 *               previous page. Accepts Long data type, not required.
+	 * @param limit  - maximal number of message entities in the page. Accepts int
+	 *               data type.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type writing an array of
+	 *         message entities of the page.
+	 */
+	@GetMapping(value = MESSAGES_PAGE_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> showMessagesPageStructured(
+			@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
+	/**
+	 * Request handler for streaming all message entities of a group, ordered by
+	 * ID.
+	 * 
+	 * @param grId - ID of the group. Accepts int data type.
+	 * @return ResponseEntity of StreamingResponseBody type writing the same text
+	 *         as showMessages() method.
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamGroupMessages(
+			@PathVariable(name = "grId", required = true) int grId);
+
+	/**
+	 * Request handler for streaming all message entities of a group as JSON or
+	 * CBOR.
+	 * 
+	 * @param grId   - ID of the group. Accepts int data type.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type writing an array of
+	 *         message entities.
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamGroupMessagesStructured(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
+	/**
+	 * Request handler for accessing a page of message entities of a group
+	 * following the message entity with provided ID (keyset pagination), in the
+	 * same shape as showMessagesPage(...) method.
+	 * 
+	 * @param grId  - ID of the group. Accepts int data type.
+	 * @param after - cursor of the page, ID of the last message entity of the
+	 *              previous page. Accepts Long data type, not required.
+	 * @param limit - maximal number of message entities in the page. Accepts int
+	 *              data type.
+	 * @return ResponseEntity of String type with data of message entities of the
+	 *         page.
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PAGE_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public ResponseEntity<String> showGroupMessagesPage(@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit);
+
+	/**
+	 * Request handler for accessing a page of message entities of a group as
+	 * JSON or CBOR, in the same shape as showMessagesPageStructured(...) method.
+	 * 
+	 * @param grId   - ID of the group. Accepts int data type.
+	 * @param after  - cursor of the page, ID of the last message entity of the
+	 *               previous page. Accepts Long data type, not required.
+	 * @param limit  - maximal number of message entities in the page. Accepts int
+	 *               data type.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type writing an array of
+	 *         message entities of the page.
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PAGE_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> showGroupMessagesPageStructured(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
+	/**
+	 * Request handler for counting message entities of a group.
+	 * 
+	 * @param grId - ID of the group. Accepts int data type.
+	 * @return ResponseEntity of String type with number of message entities of
+	 *         the group.
+	 */
+	@GetMapping(GROUP_MESSAGES_COUNT_PATH)
+	public ResponseEntity<String> countGroupMessages(@PathVariable(name = "grId", required = true) int grId);
+
+	/**
+	 * Request handler for streaming message entities posted in provided period of
+	 * days, ordered by date and ID. The period is either <i>from</i>..<i>to</i>
+	 * or the last <i>days</i> days up to <i>to</i>.
+	 * 
+	 * @param from - first day of the period in ISO format (2019-03-01). Accepts
+	 *             LocalDate data type, not required when days are provided.
+	 * @param to   - last day of the period, inclusive. Accepts LocalDate data
+	 *             type, today by default.
+	 * @param days - number of days of the period ending with <i>to</i>, used when
+	 *             <i>from</i> is not provided. Accepts int data type.
+	 * @return ResponseEntity of StreamingResponseBody type writing the same text
+	 *         as showMessages() method, or HttpStatus.BAD_REQUEST in case if the
+	 *         period is not valid.
+	 */
+	@GetMapping(value = MESSAGES_DATES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamMessagesBetween(
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days);
+
+	/**
+	 * Request handler for streaming message entities posted in provided period of
+	 * days as JSON or CBOR, in the same way as streamMessagesBetween(...) method.
+	 * 
+	 * @param from   - first day of the period in ISO format (2019-03-01). Accepts
+	 *               LocalDate data type, not required when days are provided.
+	 * @param to     - last day of the period, inclusive. Accepts LocalDate data
+	 *               type, today by default.
+	 * @param days   - number of days of the period ending with <i>to</i>, used
+	 *               when <i>from</i> is not provided. Accepts int data type.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type writing an array of
+	 *         message entities, or HttpStatus.BAD_REQUEST in case if the period is
+	 *         not valid.
+	 */
+	@GetMapping(value = MESSAGES_DATES_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamMessagesBetweenStructured(
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
+	/**
+	 * Request handler for streaming message entities of a group posted in
+	 * provided period of days, in the same way as streamMessagesBetween(...)
+	 * method.
+	 * 
+	 * @param grId - ID of the group. Accepts int data type.
+	 * @param from - first day of the period in ISO format (2019-03-01). Accepts
+	 *             LocalDate data type, not required when days are provided.
+	 * @param to   - last day of the period, inclusive. Accepts LocalDate data
+	 *             type, today by default.
+	 * @param days - number of days of the period ending with <i>to</i>, used when
+	 *             <i>from</i> is not provided. Accepts int data type.
+	 * @return ResponseEntity of StreamingResponseBody type.
+	 */
+	@GetMapping(value = GROUP_MESSAGES_DATES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamGroupMessagesBetween(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days);
+
+	/**
+	 * Request handler for streaming message entities of a group posted in
+	 * provided period of days as JSON or CBOR.
+	 * 
+	 * @param grId   - ID of the group. Accepts int data type.
+	 * @param from   - first day of the period in ISO format (2019-03-01). Accepts
+	 *               LocalDate data type, not required when days are provided.
+	 * @param to     - last day of the period, inclusive. Accepts LocalDate data
+	 *               type, today by default.
+	 * @param days   - number of days of the period ending with <i>to</i>, used
+	 *               when <i>from</i> is not provided. Accepts int data type.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type.
+	 */
+	@GetMapping(value = GROUP_MESSAGES_DATES_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> streamGroupMessagesBetweenStructured(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
+	/**
+	 * Request handler for searching message entities by their text. A message
+	 * entity matches in case if its text contains all words of the query, case
+	 * insensitive; a word ending with '*' matches all words starting with it.
+	 * 
+	 * @param query - query, for example <i>hello wor*</i>. Accepts String data
+	 *              type.
+	 * @param limit - maximal number of returned message entities. Accepts int
+	 *              data type.
+	 * @return ResponseEntity of String type with data of matching message
+	 *         entities ordered by ID, HttpStatus.BAD_REQUEST in case if the query
+	 *         is empty, or HttpStatus.SERVICE_UNAVAILABLE in case if the search
+	 *         index is not built yet.
+	 */
+	@GetMapping(value = SEARCH_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public ResponseEntity<String> searchMessages(@RequestParam(name = "q", required = false) String query,
+			@RequestParam(name = "limit", required = false, defaultValue = "100") int limit);
+
+	/**
+	 * Request handler for searching message entities by their text, returning
+	 * the matching ones as JSON or CBOR.
+	 * 
+	 * @param query  - query, for example <i>hello wor*</i>. Accepts String data
+	 *               type.
+	 * @param limit  - maximal number of returned message entities. Accepts int
+	 *               data type.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type writing an array of
+	 *         matching message entities, or the same errors as
+	 *         searchMessages(...) method.
+	 */
+	@GetMapping(value = SEARCH_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> searchMessagesStructured(
+			@RequestParam(name = "q", required = false) String query,
+			@RequestParam(name = "limit", required = false, defaultValue = "100") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
+	/**
+	 * Request handler for streaming changes of message entities as Server-Sent
+	 * Events, as they are published by MessageChangeFeed, instead of polling the
+	 * listings. Every event is named after the type of the change (post, put,
+	 * delete or reset), its ID is the sequence of the change and its data is the
+	 * changed message entity as a JSON object, with ID only for deletes. The
+	 * first event is reset in case if changes after the last event ID are not
+	 * available any more, or if it is not provided: the client has to read the
+	 * messages again and apply the following events to them.
+	 * <p>
+	 * The stream is completed in case if the client does not keep up with the
+	 * changes, or after the timeout of asynchronous requests; the client is
+	 * expected to reconnect with the ID of the last received event.
+	 * 
+	 * @param lastEventId - value of Last-Event-ID header, sent by the client
+	 *                    resuming the stream.
+	 * @return SseEmitter object sending the events.
+	 */
+	@GetMapping(value = MESSAGES_CHANGES_PATH, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId);
+
+	/**
+	 * Request handler for posting a new message entity of a group to the
+	 * database.
+	 * 
+	 * @param grId - ID of the group. Accepts int data type.
+	 * @param id   - ID of posted message entity. Accepts int data type.
+	 * @param text - Text of posted message entity. Accepts String data type.
+	 * @return ResponseEntity of String type.
+	 */
+	@PostMapping(POST_GROUP_MESSAGE_PATH)
+	public ResponseEntity<String> postGroupMessage(@PathVariable(name = "grId", required = true) int grId,
+			@PathVariable(name = "id", required = true) int id,
+			@PathVariable(name = "text", required = false) String text);
+
+	/**
+	 * Request handler for posting a new message entity of group 1 to the
+	 * database.
 	 * 
 	 * @param id   - ID of posted message entity. Accepts int data type.
 	 * @param text - Text of posted message entity. Accepts String data type.
 	 * @return ResponseEntity of String type.
 	 */
-	@PostMapping("/postMessage/{id}/{text}")
+	@PostMapping(POST_MESSAGE_PATH)
 	public ResponseEntity<String> postMessage(@PathVariable(name = "id", required = true) int id,
 			@PathVariable(name = "text", required = false) String text);
 
+	/**
+	 * Request handler for posting a new message entity of a group to the database
+	 * with an ID allocated by the application. The response has status 201 with
+	 * the URI of the posted message entity in Location header. Unlike posts with
+	 * an ID chosen by the client it is not written to the journal, since without
+	 * the database no ID can be reserved.
+	 * 
+	 * @param grId - ID of the group. Accepts int data type.
+	 * @param text - Text of posted message entity. Accepts String data type.
+	 * @return ResponseEntity of String type.
+	 */
+	@PostMapping(POST_NEW_GROUP_MESSAGE_PATH)
+	public ResponseEntity<String> postNewGroupMessage(@PathVariable(name = "grId", required = true) int grId,
+			@PathVariable(name = "text", required = true) String text);
+
+	/**
+	 * Request handler for posting a new message entity of group 1 to the
+	 * database with an ID allocated by the application.
+	 * 
+	 * @see #postNewGroupMessage(int, String)
+	 * @param text - Text of posted message entity. Accepts String data type.
+	 * @return ResponseEntity of String type.
+	 */
+	@PostMapping(POST_NEW_MESSAGE_PATH)
+	public ResponseEntity<String> postNewMessage(@PathVariable(name = "text", required = true) String text);
+
+	/**
+	 * Request handler for posting a batch of new message entities to the
+	 * database. The body is either a JSON array or newline delimited JSON objects
+	 * (application/x-ndjson) in shape of <i>{"id": 1, "text": "Some text",
+	 * "grId": 1}</i>, group ID is optional. The body is read and posted in
+	 * batches, so its size is not limited by the memory. While the journal has
+	 * pending writes the batch is rejected with status 503, since it would be
+	 * written before them.
+	 * 
+	 * @param body - body of the request.
+	 * @return ResponseEntity of String type with number of posted message
+	 *         entities and list of occupied IDs.
+	 */
+	@PostMapping(value = POST_MESSAGES_PATH, consumes = { MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE })
+	public ResponseEntity<String> postMessages(InputStream body);
+
 	/**
 	 * 
-	 * Request handler for putting a message entity with provided ID.
+	 * Request handler for putting a new text to a message entity with provided
+	 * ID, keeping its group and date. In case if the expected version is
+	 * provided, the message entity is updated only if it still has this version,
+	 * otherwise the response has status 409; no row lock is taken for it. The
+	 * ETag of Message&#47id in If-Match header is compared as a whole, including
+	 * the hash of the content, so it does not match a message entity deleted and
+	 * posted again; weak ETags are refused with status 400, since If-Match uses
+	 * the strong comparison. The response has the ETag of the updated message
+	 * entity.
 	 * 
-	 * @param id   - ID of puted message entity. Accepts int data type.
-	 * @param text - New text of puted message entity. Accepts String data type.
+	 * @param id      - ID of puted message entity. Accepts int data type.
+	 * @param text    - New text of puted message entity. Accepts String data
+	 *                type.
+	 * @param version - expected version of the message entity, optional.
+	 * @param ifMatch - value of If-Match header with the strong ETag of
+	 *                Message&#47id or the version in quotes, used in case if
+	 *                there is no version parameter. Optional.
 	 * @return ResponseEntity of String type.
 	 */
-	@PutMapping("/putMessage/{id}/{text}")
+	@PutMapping(PUT_MESSAGE_PATH)
 	public ResponseEntity<String> putMessage(@PathVariable(name = "id", required = true) int id,
-			@PathVariable(name = "text", required = false) String text);
+			@PathVariable(name = "text", required = false) String text,
+			@RequestParam(name = "version", required = false) Long version,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 
 	/**
 	 * Request handler for deleting a message entity with provided ID.
@@ -57,14 +469,28 @@ public interface MessagerControllerInterface {
 	 * @param id - ID of message entity to delete. Accepts int data type.
 	 * @return ResponseEntity of String type.
 	 */
-	@DeleteMapping("/deleteMessage/{id}")
+	@DeleteMapping(DELETE_MESSAGE_PATH)
 	public ResponseEntity<String> deleteMessage(@PathVariable(name = "id", required = true) int id);
 
 	/**
 	 * @param id - ID of wanted message entity. Accepts int data type.
 	 * @return ResponseEntity of String type.
 	 */
-	@GetMapping("/Message/{id}")
+	@GetMapping(value = MESSAGE_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
 	public ResponseEntity<String> getMessageById(@PathVariable(name = "id", required = true) int id);
 
+	/**
+	 * Request handler for accessing a message entity as a JSON or CBOR object.
+	 * 
+	 * @param id     - ID of wanted message entity. Accepts int data type.
+	 * @param accept - value of Accept header.
+	 * @return ResponseEntity of StreamingResponseBody type writing the message
+	 *         entity, or HttpStatus.NOT_FOUND in case if it is not existing.
+	 */
+	@GetMapping(value = MESSAGE_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public ResponseEntity<StreamingResponseBody> getMessageByIdStructured(
+			@PathVariable(name = "id", required = true) int id,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept);
+
 }
@@ -0,0 +1,62 @@
+package com.example.demo.sl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration of the <i>virtual-threads</i> profile. Tomcat handles every
+ * request, and so every blocking call of MessageRepository, on a new virtual
+ * thread instead of a thread of its bounded pool; asynchronous requests like
+ * <i>Messages&#47stream</i> are executed on virtual threads as well.
+ * <p>
+ * The application is compiled for Java 1.8, so the executor is created by
+ * reflection and the profile requires the application to be run on Java 21
+ * or newer.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+
+	/**
+	 * @return executor starting a new virtual thread for every task.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("The virtual-threads profile requires Java 21 or newer, running on Java "
+					+ System.getProperty("java.version"), e);
+		}
+	}
+
+	/**
+	 * @param virtualThreadExecutor - executor of virtual threads.
+	 * @return customizer replacing the thread pool of Tomcat connector with the
+	 *         executor of virtual threads.
+	 */
+	@Bean
+	public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(
+			ExecutorService virtualThreadExecutor) {
+		return factory -> factory.addConnectorCustomizers(
+				connector -> connector.getProtocolHandler().setExecutor(virtualThreadExecutor));
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(new ConcurrentTaskExecutor(virtualThreadExecutor()));
+	}
+
+}
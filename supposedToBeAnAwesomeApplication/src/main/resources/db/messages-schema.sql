@@ -0,0 +1,25 @@
+CREATE TABLE IF NOT EXISTS messages (
+	m_id BIGINT PRIMARY KEY,
+	m_text VARCHAR(100),
+	gr_id BIGINT,
+	m_date TIMESTAMP,
+	m_version BIGINT NOT NULL DEFAULT 0
+);
+
+-- tables created before versioning of updates
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS m_version BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS messages_gr_id_m_id_idx ON messages (gr_id, m_id);
+
+CREATE INDEX IF NOT EXISTS messages_m_date_m_id_idx ON messages (m_date, m_id);
+
+CREATE INDEX IF NOT EXISTS messages_gr_id_m_date_m_id_idx ON messages (gr_id, m_date, m_id);
+
+-- IDs of messages posted without an ID are reserved in blocks of 50 (message.id.block-size has to be equal to the
+-- increment).
+CREATE SEQUENCE IF NOT EXISTS messages_m_id_seq START WITH 1 INCREMENT BY 50;
+
+-- IDs chosen by clients may be ahead of the sequence (e.g. messages posted before the sequence existed), then the
+-- sequence is moved past them. The sequence never moves back, at the cost of one block reserved by every start.
+SELECT CASE WHEN max(m_id) >= nextval('messages_m_id_seq') THEN setval('messages_m_id_seq', max(m_id) + 1, false) END
+	FROM messages;
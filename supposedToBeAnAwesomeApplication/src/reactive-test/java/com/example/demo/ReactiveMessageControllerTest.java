@@ -0,0 +1,255 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import com.example.demo.bl.MessagePage;
+import com.example.demo.bl.MessageService;
+import com.example.demo.bl.MessageServiceInterface;
+import com.example.demo.dl.MessageEntity;
+import com.example.demo.sl.MessageTextWriter;
+import com.example.demo.sl.MessagerControllerInterface;
+import com.example.demo.sl.ReactiveMessageController;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * This class containing a methods designed to test the request mappings and
+ * responses of ReactiveMessageController, which have to be the same as the ones
+ * of MessageController, and the streaming of listings page by page.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles({ "reactive", "inmemory" })
+public class ReactiveMessageControllerTest {
+
+	@Autowired
+	private ReactiveMessageController mesCont;
+
+	@MockBean
+	private MessageService mesService;
+
+	@Before
+	public void setup() {
+		Mockito.when(mesService.appendDataFromMessageEntity(any(), any(StringBuilder.class)))
+				.thenAnswer(invocation -> invocation.<StringBuilder>getArgument(1)
+						.append("Message ").append(invocation.<MessageEntity>getArgument(0).getMesId()).append('\n'));
+	}
+
+	private MessageEntity createMessageEntity(long id) {
+		MessageEntity message = new MessageEntity();
+		message.setMesId(id);
+		message.setGrId(1L);
+		message.setText("Text of message " + id);
+		message.setDate();
+		return message;
+	}
+
+	/**
+	 * Case for testing the request mappings of ReactiveMessageController.
+	 * <p>
+	 * Expected result is every request handler of MessagerControllerInterface
+	 * mapped by the method of the same name with the same routes, HTTP methods
+	 * and media types.
+	 */
+	@Test
+	public void requestMappingsOfMessagerControllerInterfaceServedTest() {
+		for (Method method : MessagerControllerInterface.class.getMethods()) {
+			RequestMapping expectedMapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+			if (expectedMapping == null) {
+				continue;
+			}
+			Method reactiveMethod = Arrays.stream(ReactiveMessageController.class.getMethods())
+					.filter(candidate -> candidate.getName().equals(method.getName())).findFirst().orElse(null);
+			assertThat(reactiveMethod).describedAs("There is no handler of %s", method.getName()).isNotNull();
+			RequestMapping actualMapping = AnnotatedElementUtils.findMergedAnnotation(reactiveMethod,
+					RequestMapping.class);
+
+			assertThat(actualMapping).describedAs("Mapping of %s", method.getName()).isNotNull();
+			assertThat(actualMapping.path()).describedAs("Routes of %s", method.getName())
+					.containsExactly(expectedMapping.path());
+			assertThat(actualMapping.method()).describedAs("HTTP methods of %s", method.getName())
+					.containsExactly(expectedMapping.method());
+			assertThat(actualMapping.produces()).describedAs("Produced media types of %s", method.getName())
+					.containsExactly(expectedMapping.produces());
+			assertThat(actualMapping.consumes()).describedAs("Consumed media types of %s", method.getName())
+					.containsExactly(expectedMapping.consumes());
+		}
+	}
+
+	/**
+	 * Case for testing ReactiveMessageController.getMessageById(int id) method in
+	 * case if provided ID of message which does not exists.
+	 * <p>
+	 * Expected response is HttpStatus.NotFound.
+	 */
+	@Test
+	public void getMappingUnexistingMessageByIDNegativeTest() {
+		Mockito.when(mesService.getMessageById(1)).thenThrow(new NullPointerException());
+
+		ResponseEntity<String> actualResponseEntity = mesCont.getMessageById(1).block();
+
+		assertThat(actualResponseEntity.getBody()).contains("Message with ID 1 isnt exeisting yet");
+		assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
+	/**
+	 * Case for testing ReactiveMessageController.streamMessages(int page, int
+	 * limit) method streaming all messages, which are read in several pages.
+	 * <p>
+	 * Expected result is the header followed by all messages, with the listing
+	 * ETag like the response of MessageController.
+	 */
+	@Test
+	public void getMappingStreamMessagesPositiveTest() {
+		List<MessageEntity> firstPage = Arrays.asList(createMessageEntity(1), createMessageEntity(2));
+		List<MessageEntity> secondPage = Collections.singletonList(createMessageEntity(3));
+		Mockito.when(mesService.findMessagesAfter(any(), any(int.class))).thenReturn(new MessagePage(firstPage, 2L));
+		Mockito.when(mesService.findMessagesAfter(Mockito.eq(2L), any(int.class)))
+				.thenReturn(new MessagePage(secondPage, null));
+
+		ResponseEntity<Flux<DataBuffer>> actualResponse = mesCont.streamMessages(0, 0).block();
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(actualResponse.getHeaders().getContentType().isCompatibleWith(MediaType.TEXT_PLAIN)).isTrue();
+		assertThat(actualResponse.getHeaders().getETag()).isNotNull();
+		assertThat(readBody(actualResponse))
+				.isEqualTo(MessageTextWriter.MESSAGES_HEADER + "Message 1\nMessage 2\nMessage 3\n");
+	}
+
+	/**
+	 * Case for testing ReactiveMessageController.streamMessages(int page, int
+	 * limit) method in case if there are no messages or troubles with the
+	 * database connection.
+	 * <p>
+	 * Expected result is the text telling there are no messages with
+	 * HttpStatus.OK, and HttpStatus.INTERNAL_SERVER_ERROR in case of troubles
+	 * with the database connection, like the responses of MessageController.
+	 */
+	@Test
+	public void getMappingStreamNoMessagesTest() {
+		Mockito.when(mesService.findMessagesAfter(any(), any(int.class)))
+				.thenReturn(new MessagePage(Collections.emptyList(), null));
+
+		ResponseEntity<Flux<DataBuffer>> actualResponse = mesCont.streamMessages(0, 0).block();
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(readBody(actualResponse)).isEqualTo(MessageTextWriter.NO_MESSAGES);
+
+		Mockito.when(mesService.findMessagesAfter(any(), any(int.class)))
+				.thenThrow(new CannotCreateTransactionException(""));
+
+		actualResponse = mesCont.streamMessages(0, 0).block();
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+		assertThat(readBody(actualResponse)).startsWith("Check your database connection parameters.");
+	}
+
+	private String readBody(ResponseEntity<Flux<DataBuffer>> response) {
+		return DataBufferUtils.join(response.getBody())
+				.map(buffer -> StandardCharsets.UTF_8.decode(buffer.asByteBuffer()).toString()).block();
+	}
+
+	/**
+	 * Case for testing ReactiveMessageController.streamMessagesBetween(LocalDate
+	 * from, LocalDate to, int days) method, which reads the messages of the
+	 * period page by page.
+	 * <p>
+	 * Expected result is the text of all pages with HttpStatus.OK for a valid
+	 * period, HttpStatus.BAD_REQUEST for a period which is not valid, and
+	 * HttpStatus.INTERNAL_SERVER_ERROR in case of troubles with the database
+	 * connection.
+	 */
+	@Test
+	public void getMappingStreamMessagesBetweenTest() {
+		MessageEntity lastOfFirstPage = createMessageEntity(2);
+		Mockito.when(mesService.findMessagesBetweenAfter(any(LocalDate.class), any(LocalDate.class), Mockito.isNull(),
+				any(int.class)))
+				.thenReturn(new MessagePage(Arrays.asList(createMessageEntity(1), lastOfFirstPage), 2L));
+		Mockito.when(mesService.findMessagesBetweenAfter(any(LocalDate.class), any(LocalDate.class),
+				Mockito.eq(lastOfFirstPage), any(int.class)))
+				.thenReturn(new MessagePage(Collections.singletonList(createMessageEntity(3)), null));
+
+		ResponseEntity<Flux<DataBuffer>> actualResponse = mesCont.streamMessagesBetween(null, null, 7).block();
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(readBody(actualResponse))
+				.isEqualTo(MessageTextWriter.MESSAGES_HEADER + "Message 1\nMessage 2\nMessage 3\n");
+		Mockito.verify(mesService).findMessagesBetweenAfter(LocalDate.now().minusDays(6), LocalDate.now(), null,
+				MessageServiceInterface.MAX_PAGE_SIZE);
+		assertThat(mesCont.streamMessagesBetween(null, null, 0).block().getStatusCode())
+				.isEqualTo(HttpStatus.BAD_REQUEST);
+
+		Mockito.when(mesService.findMessagesBetweenAfter(any(LocalDate.class), any(LocalDate.class), Mockito.isNull(),
+				any(int.class))).thenThrow(new CannotCreateTransactionException(""));
+
+		actualResponse = mesCont.streamMessagesBetween(null, null, 7).block();
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+		assertThat(readBody(actualResponse)).startsWith("Check your database connection parameters.");
+	}
+
+	/**
+	 * Case for testing ReactiveMessageController.streamGroupMessagesStructured(int
+	 * grId, String accept) method streaming messages of a group, which are read
+	 * in several pages.
+	 * <p>
+	 * Expected result is a single JSON array of all messages.
+	 */
+	@Test
+	public void getMappingStreamGroupMessagesStructuredPositiveTest() {
+		Mockito.when(mesService.findGroupMessagesAfter(Mockito.eq(1), Mockito.isNull(), any(int.class)))
+				.thenReturn(new MessagePage(Arrays.asList(createMessageEntity(1), createMessageEntity(2)), 2L));
+		Mockito.when(mesService.findGroupMessagesAfter(Mockito.eq(1), Mockito.eq(2L), any(int.class)))
+				.thenReturn(new MessagePage(Collections.singletonList(createMessageEntity(3)), null));
+
+		ResponseEntity<Flux<DataBuffer>> actualResponse = mesCont
+				.streamGroupMessagesStructured(1, MediaType.APPLICATION_JSON_VALUE).block();
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(actualResponse.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON))
+				.isTrue();
+		assertThat(readBody(actualResponse)).startsWith("[{\"id\":1,").contains("},{\"id\":3,").endsWith("}]");
+	}
+
+	/**
+	 * Case for testing ReactiveMessageController.deleteMessage(int id) method in
+	 * case of troubles with the database connection.
+	 * <p>
+	 * Expected response is HttpStatus.INTERNAL_SERVER_ERROR.
+	 */
+	@Test
+	public void deleteMessageThrowsCannotCreateConnectionExceptionNegativeTest() {
+		Mockito.when(mesService.deleteMessageIfExisting(1)).thenThrow(new CannotCreateTransactionException(""));
+
+		ResponseEntity<String> actualResponseEntity = mesCont.deleteMessage(1).block();
+
+		assertThat(actualResponseEntity.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
+}
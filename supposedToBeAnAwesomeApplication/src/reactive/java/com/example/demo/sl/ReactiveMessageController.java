@@ -0,0 +1,594 @@
+package com.example.demo.sl;
+
+import static com.example.demo.sl.MessagerControllerInterface.APPLICATION_NDJSON_VALUE;
+import static com.example.demo.sl.MessagerControllerInterface.DELETE_MESSAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.GROUP_MESSAGES_COUNT_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.GROUP_MESSAGES_DATES_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.GROUP_MESSAGES_PAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.GROUP_MESSAGES_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.MESSAGES_CHANGES_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.MESSAGES_DATES_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.MESSAGES_PAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.MESSAGES_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.MESSAGES_STREAM_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.MESSAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.POST_GROUP_MESSAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.POST_MESSAGES_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.POST_MESSAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.POST_NEW_GROUP_MESSAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.POST_NEW_MESSAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.PUT_MESSAGE_PATH;
+import static com.example.demo.sl.MessagerControllerInterface.SEARCH_PATH;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.demo.bl.MessageChangeFeed;
+import com.example.demo.bl.MessagePage;
+import com.example.demo.bl.MessageService;
+import com.example.demo.bl.MessageServiceInterface;
+import com.example.demo.dl.MessageEntity;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking variant of MessageController, created instead of it when the
+ * <i>reactive</i> profile is active. Handles the same requests with the same
+ * responses, but no request thread is held while waiting for the database:
+ * the blocking calls are delegated to a MessageController instance executed
+ * on the JDBC scheduler. Listings of all messages, of a group or of a period
+ * are read page by page with keyset pagination, every page on a JDBC thread of
+ * its own and only when the client is ready to receive more data, so no JDBC
+ * thread, cursor or connection is held while the client reads the listing.
+ * <p>
+ * Requests which can not be queued for a JDBC thread are answered with 503
+ * status.
+ *
+ * @author serhii.shvets
+ *
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveMessageController {
+
+	private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ReactiveMessageController.class);
+
+	private static final DefaultDataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+	private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+	@Autowired
+	private MessageService messageService;
+
+	@Autowired
+	private AutowireCapableBeanFactory beanFactory;
+
+	@Autowired
+	private Scheduler jdbcScheduler;
+
+	@Autowired
+	private MessageChangeFeed changeFeed;
+
+	@Value("${message.feed.buffer-size:256}")
+	private int feedBufferSize;
+
+	private MessagerControllerInterface delegate;
+
+	@PostConstruct
+	private void createDelegate() {
+		delegate = beanFactory.createBean(MessageController.class);
+	}
+
+	/**
+	 * @see MessagerControllerInterface#showMessages()
+	 */
+	@GetMapping(value = MESSAGES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<String>> showMessages() {
+		return callDelegate(delegate::showMessages);
+	}
+
+	/**
+	 * Streams all message entities reading them with keyset pagination, the next
+	 * page is read only after the previous one was requested by the client. A
+	 * single page is read at once when limit is provided.
+	 *
+	 * @see MessagerControllerInterface#streamMessages(int, int)
+	 */
+	@GetMapping(value = MESSAGES_STREAM_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamMessages(
+			@RequestParam(name = "page", required = false, defaultValue = "0") int page,
+			@RequestParam(name = "limit", required = false, defaultValue = "0") int limit) {
+		if (limit > 0) {
+			return callStreamingDelegate(() -> delegate.streamMessages(page, limit));
+		}
+		return streamListing(() -> delegate.streamMessages(page, limit),
+				last -> messageService.findMessagesAfter(getCursor(last), MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#streamMessagesStructured(int, int, String)
+	 */
+	@GetMapping(value = { MESSAGES_PATH, MESSAGES_STREAM_PATH }, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamMessagesStructured(
+			@RequestParam(name = "page", required = false, defaultValue = "0") int page,
+			@RequestParam(name = "limit", required = false, defaultValue = "0") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		if (limit > 0) {
+			return callStreamingDelegate(() -> delegate.streamMessagesStructured(page, limit, accept));
+		}
+		return streamListing(() -> delegate.streamMessagesStructured(page, limit, accept), last -> messageService
+				.findMessagesAfter(getCursor(last), MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	private static boolean isDatabaseFailure(Throwable e) {
+		return e instanceof CannotCreateTransactionException || e instanceof DataAccessResourceFailureException;
+	}
+
+	/**
+	 * Streams all message entities of the group, reading them with keyset
+	 * pagination like streamMessages(...) method.
+	 *
+	 * @see MessagerControllerInterface#streamGroupMessages(int)
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamGroupMessages(
+			@PathVariable(name = "grId", required = true) int grId) {
+		return streamListing(() -> delegate.streamGroupMessages(grId), last -> messageService
+				.findGroupMessagesAfter(grId, getCursor(last), MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#streamGroupMessagesStructured(int, String)
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamGroupMessagesStructured(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		return streamListing(() -> delegate.streamGroupMessagesStructured(grId, accept), last -> messageService
+				.findGroupMessagesAfter(grId, getCursor(last), MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	/**
+	 * Reads the pages following provided first one. The read operation gets the
+	 * last message entity of the previous page, and the next page is read only
+	 * after the previous one was requested by the client.
+	 */
+	private Flux<MessagePage> expandPages(Mono<MessagePage> first, Function<MessageEntity, MessagePage> read) {
+		return first.expand(page -> (page.getNextCursor() != null)
+				? readPage(read, page.getMessages().get(page.getMessages().size() - 1))
+				: Mono.empty());
+	}
+
+	private Flux<String> renderPages(Flux<MessagePage> pages) {
+		return pages.index().map(page -> renderPage(page.getT1() == 0, page.getT2().getMessages()));
+	}
+
+	private static Long getCursor(MessageEntity last) {
+		return (last != null) ? last.getMesId() : null;
+	}
+
+	private Mono<MessagePage> readPage(Function<MessageEntity, MessagePage> read, MessageEntity last) {
+		return Mono.fromCallable(() -> read.apply(last)).subscribeOn(jdbcScheduler);
+	}
+
+	private String renderPage(boolean first, List<MessageEntity> messages) {
+		if (first && messages.isEmpty()) {
+			return MessageTextWriter.NO_MESSAGES;
+		}
+		StringBuilder resultString = new StringBuilder(first ? MessageTextWriter.MESSAGES_HEADER : "");
+		for (MessageEntity message : messages) {
+			messageService.appendDataFromMessageEntity(message, resultString);
+		}
+		return resultString.toString();
+	}
+
+	/**
+	 * @see MessagerControllerInterface#streamMessagesBetween(LocalDate, LocalDate,
+	 *      int)
+	 */
+	@GetMapping(value = MESSAGES_DATES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamMessagesBetween(
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = MessageController.getPeriodStart(from, end, days);
+		return streamListing(() -> delegate.streamMessagesBetween(from, end, days), last -> messageService
+				.findMessagesBetweenAfter(start, end, last, MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#streamMessagesBetweenStructured(LocalDate,
+	 *      LocalDate, int, String)
+	 */
+	@GetMapping(value = MESSAGES_DATES_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamMessagesBetweenStructured(
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = MessageController.getPeriodStart(from, end, days);
+		return streamListing(() -> delegate.streamMessagesBetweenStructured(from, end, days, accept),
+				last -> messageService.findMessagesBetweenAfter(start, end, last,
+						MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#streamGroupMessagesBetween(int, LocalDate,
+	 *      LocalDate, int)
+	 */
+	@GetMapping(value = GROUP_MESSAGES_DATES_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamGroupMessagesBetween(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = MessageController.getPeriodStart(from, end, days);
+		return streamListing(() -> delegate.streamGroupMessagesBetween(grId, from, end, days),
+				last -> messageService.findGroupMessagesBetweenAfter(grId, start, end, last,
+						MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#streamGroupMessagesBetweenStructured(int,
+	 *      LocalDate, LocalDate, int, String)
+	 */
+	@GetMapping(value = GROUP_MESSAGES_DATES_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> streamGroupMessagesBetweenStructured(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			@RequestParam(name = "days", required = false, defaultValue = "0") int days,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		LocalDate end = (to != null) ? to : LocalDate.now();
+		LocalDate start = MessageController.getPeriodStart(from, end, days);
+		return streamListing(() -> delegate.streamGroupMessagesBetweenStructured(grId, from, end, days, accept),
+				last -> messageService.findGroupMessagesBetweenAfter(grId, start, end, last,
+						MessageServiceInterface.MAX_PAGE_SIZE));
+	}
+
+	/**
+	 * Converts a listing response of MessageController into a response
+	 * publishing the listing page by page. MessageController only answers the
+	 * status and the headers, while the pages are read by provided keyset read
+	 * operation, which gets the last message entity of the previous page. The
+	 * first page is read before the response, so troubles with the database
+	 * connection are answered with 500 status like by MessageController.
+	 */
+	private Mono<ResponseEntity<Flux<DataBuffer>>> streamListing(
+			Supplier<ResponseEntity<StreamingResponseBody>> call, Function<MessageEntity, MessagePage> read) {
+		return Mono.fromCallable(() -> {
+			ResponseEntity<StreamingResponseBody> response = call.get();
+			if (response.getStatusCode() != HttpStatus.OK) {
+				return writeBody(response);
+			}
+			Flux<MessagePage> pages = expandPages(Mono.just(read.apply(null)), read);
+			MediaType mediaType = response.getHeaders().getContentType();
+			Flux<DataBuffer> body = MediaType.TEXT_PLAIN.isCompatibleWith(mediaType)
+					? renderPages(pages).map(text -> BUFFER_FACTORY.wrap(text.getBytes(StandardCharsets.UTF_8)))
+					: writeStructuredPages(mediaType, pages);
+			return new ResponseEntity<Flux<DataBuffer>>(body, response.getHeaders(), HttpStatus.OK);
+		}).subscribeOn(jdbcScheduler).onErrorResume(ReactiveMessageController::isDatabaseFailure,
+				this::getDatabaseError).onErrorResume(RejectedExecutionException.class, this::getOverloadError);
+	}
+
+	/**
+	 * Writes the pages in provided structured format, with a writer of its own
+	 * for every subscription, which is flushed after every page.
+	 */
+	private Flux<DataBuffer> writeStructuredPages(MediaType mediaType, Flux<MessagePage> pages) {
+		return Flux.defer(() -> {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			MessageStructuredWriter writer;
+			try {
+				writer = new MessageStructuredWriter(mediaType, outputStream);
+			} catch (IOException e) {
+				return Flux.error(e);
+			}
+			return pages.map(page -> {
+				try {
+					page.getMessages().forEach(writer);
+					writer.flush();
+				} catch (IOException e) {
+					throw Exceptions.propagate(e);
+				}
+				return takeBuffer(outputStream);
+			}).concatWith(Mono.fromCallable(() -> {
+				writer.finish();
+				return takeBuffer(outputStream);
+			}));
+		});
+	}
+
+	private DataBuffer takeBuffer(ByteArrayOutputStream outputStream) {
+		DataBuffer buffer = BUFFER_FACTORY.wrap(outputStream.toByteArray());
+		outputStream.reset();
+		return buffer;
+	}
+
+	/**
+	 * Converts a streaming response of MessageController, which holds no more
+	 * than a single page of message entities, into a response publishing its
+	 * body. The body is written on the JDBC thread calling the delegate, since
+	 * some of its methods read message entities while the body is written.
+	 */
+	private Mono<ResponseEntity<Flux<DataBuffer>>> callStreamingDelegate(
+			Supplier<ResponseEntity<StreamingResponseBody>> call) {
+		return Mono.fromCallable(() -> writeBody(call.get())).subscribeOn(jdbcScheduler)
+				.onErrorResume(ReactiveMessageController::isDatabaseFailure, this::getDatabaseError)
+				.onErrorResume(RejectedExecutionException.class, this::getOverloadError);
+	}
+
+	private ResponseEntity<Flux<DataBuffer>> writeBody(ResponseEntity<StreamingResponseBody> response)
+			throws IOException {
+		Flux<DataBuffer> body = Flux.empty();
+		if (response.getBody() != null) {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			response.getBody().writeTo(outputStream);
+			body = Flux.just(BUFFER_FACTORY.wrap(outputStream.toByteArray()));
+		}
+		return new ResponseEntity<Flux<DataBuffer>>(body, response.getHeaders(), response.getStatusCode());
+	}
+
+	private Mono<ResponseEntity<Flux<DataBuffer>>> getDatabaseError(Throwable e) {
+		log.error("Check database connection parameters. {}", e.toString());
+		return Mono.just(getTextResponse("Check your database connection parameters.\n" + e.toString(),
+				HttpStatus.INTERNAL_SERVER_ERROR));
+	}
+
+	private Mono<ResponseEntity<Flux<DataBuffer>>> getOverloadError(RejectedExecutionException e) {
+		log.error("Too many requests are waiting for the database. {}", e.toString());
+		return Mono.just(
+				getTextResponse("Too many requests are waiting for the database.", HttpStatus.SERVICE_UNAVAILABLE));
+	}
+
+	private ResponseEntity<Flux<DataBuffer>> getTextResponse(String text, HttpStatus status) {
+		return ResponseEntity.status(status).contentType(TEXT_PLAIN_UTF8)
+				.body(Flux.just(BUFFER_FACTORY.wrap(text.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#showMessagesPage(Long, int)
+	 */
+	@GetMapping(value = MESSAGES_PAGE_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<String>> showMessagesPage(@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit) {
+		return callDelegate(() -> delegate.showMessagesPage(after, limit));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#showMessagesPageStructured(Long, int,
+	 *      String)
+	 */
+	@GetMapping(value = MESSAGES_PAGE_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> showMessagesPageStructured(
+			@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		return callStreamingDelegate(() -> delegate.showMessagesPageStructured(after, limit, accept));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#showGroupMessagesPage(int, Long, int)
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PAGE_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<String>> showGroupMessagesPage(@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit) {
+		return callDelegate(() -> delegate.showGroupMessagesPage(grId, after, limit));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#showGroupMessagesPageStructured(int, Long,
+	 *      int, String)
+	 */
+	@GetMapping(value = GROUP_MESSAGES_PAGE_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> showGroupMessagesPageStructured(
+			@PathVariable(name = "grId", required = true) int grId,
+			@RequestParam(name = "after", required = false) Long after,
+			@RequestParam(name = "limit", required = false, defaultValue = "500") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		return callStreamingDelegate(() -> delegate.showGroupMessagesPageStructured(grId, after, limit, accept));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#countGroupMessages(int)
+	 */
+	@GetMapping(GROUP_MESSAGES_COUNT_PATH)
+	public Mono<ResponseEntity<String>> countGroupMessages(@PathVariable(name = "grId", required = true) int grId) {
+		return callDelegate(() -> delegate.countGroupMessages(grId));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#searchMessages(String, int)
+	 */
+	@GetMapping(value = SEARCH_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<String>> searchMessages(@RequestParam(name = "q", required = false) String query,
+			@RequestParam(name = "limit", required = false, defaultValue = "100") int limit) {
+		return callDelegate(() -> delegate.searchMessages(query, limit));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#searchMessagesStructured(String, int,
+	 *      String)
+	 */
+	@GetMapping(value = SEARCH_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> searchMessagesStructured(
+			@RequestParam(name = "q", required = false) String query,
+			@RequestParam(name = "limit", required = false, defaultValue = "100") int limit,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		return callStreamingDelegate(() -> delegate.searchMessagesStructured(query, limit, accept));
+	}
+
+	/**
+	 * Streams changes of message entities, buffering no more than
+	 * <i>message.feed.buffer-size</i> events for a client which does not keep up
+	 * with them, before completing the stream.
+	 *
+	 * @see MessagerControllerInterface#streamChanges(Long)
+	 */
+	@GetMapping(value = MESSAGES_CHANGES_PATH, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<String>> streamChanges(
+			@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+		return Flux.<ServerSentEvent<String>>create(sink -> {
+			MessageChangeFeed.Subscription subscription = changeFeed.subscribe(lastEventId,
+					event -> sink.next(ServerSentEvent.builder(MessageStructuredWriter.writeChange(event))
+							.id(Long.toString(event.getSequence()))
+							.event(event.getType().name().toLowerCase(Locale.ROOT)).build()),
+					sink::complete);
+			sink.onDispose(subscription::cancel);
+		}).onBackpressureBuffer(feedBufferSize).onErrorResume(Exceptions::isOverflow, e -> {
+			log.debug("Subscriber of message changes is too slow, dropping it. {}", e.toString());
+			return Flux.empty();
+		});
+	}
+
+	/**
+	 * @see MessagerControllerInterface#postGroupMessage(int, int, String)
+	 */
+	@PostMapping(POST_GROUP_MESSAGE_PATH)
+	public Mono<ResponseEntity<String>> postGroupMessage(@PathVariable(name = "grId", required = true) int grId,
+			@PathVariable(name = "id", required = true) int id,
+			@PathVariable(name = "text", required = false) String text) {
+		return callDelegate(() -> delegate.postGroupMessage(grId, id, text));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#postMessage(int, String)
+	 */
+	@PostMapping(POST_MESSAGE_PATH)
+	public Mono<ResponseEntity<String>> postMessage(@PathVariable(name = "id", required = true) int id,
+			@PathVariable(name = "text", required = false) String text) {
+		return callDelegate(() -> delegate.postMessage(id, text));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#postNewGroupMessage(int, String)
+	 */
+	@PostMapping(POST_NEW_GROUP_MESSAGE_PATH)
+	public Mono<ResponseEntity<String>> postNewGroupMessage(
+			@PathVariable(name = "grId", required = true) int grId,
+			@PathVariable(name = "text", required = true) String text) {
+		return callDelegate(() -> delegate.postNewGroupMessage(grId, text));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#postNewMessage(String)
+	 */
+	@PostMapping(POST_NEW_MESSAGE_PATH)
+	public Mono<ResponseEntity<String>> postNewMessage(@PathVariable(name = "text", required = true) String text) {
+		return callDelegate(() -> delegate.postNewMessage(text));
+	}
+
+	/**
+	 * The body is collected before it is posted, so unlike
+	 * MessageController.postMessages(...) its size is limited by the memory.
+	 *
+	 * @see MessagerControllerInterface#postMessages(InputStream)
+	 */
+	@PostMapping(value = POST_MESSAGES_PATH, consumes = { MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE })
+	public Mono<ResponseEntity<String>> postMessages(@RequestBody Flux<DataBuffer> body) {
+		return DataBufferUtils.join(body).map(buffer -> buffer.asInputStream(true))
+				.defaultIfEmpty(new ByteArrayInputStream(new byte[0]))
+				.flatMap(inputStream -> callDelegate(() -> delegate.postMessages(inputStream)));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#putMessage(int, String, Long, String)
+	 */
+	@PutMapping(PUT_MESSAGE_PATH)
+	public Mono<ResponseEntity<String>> putMessage(@PathVariable(name = "id", required = true) int id,
+			@PathVariable(name = "text", required = false) String text,
+			@RequestParam(name = "version", required = false) Long version,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return callDelegate(() -> delegate.putMessage(id, text, version, ifMatch));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#deleteMessage(int)
+	 */
+	@DeleteMapping(DELETE_MESSAGE_PATH)
+	public Mono<ResponseEntity<String>> deleteMessage(@PathVariable(name = "id", required = true) int id) {
+		return callDelegate(() -> delegate.deleteMessage(id));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#getMessageById(int)
+	 */
+	@GetMapping(value = MESSAGE_PATH, produces = { MediaType.TEXT_PLAIN_VALUE, MediaType.ALL_VALUE })
+	public Mono<ResponseEntity<String>> getMessageById(@PathVariable(name = "id", required = true) int id) {
+		return callDelegate(() -> delegate.getMessageById(id));
+	}
+
+	/**
+	 * @see MessagerControllerInterface#getMessageByIdStructured(int, String)
+	 */
+	@GetMapping(value = MESSAGE_PATH, produces = { MediaType.APPLICATION_JSON_VALUE,
+			MessageStructuredWriter.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<Flux<DataBuffer>>> getMessageByIdStructured(
+			@PathVariable(name = "id", required = true) int id,
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		return callStreamingDelegate(() -> delegate.getMessageByIdStructured(id, accept));
+	}
+
+	private Mono<ResponseEntity<String>> callDelegate(Callable<ResponseEntity<String>> call) {
+		return Mono.fromCallable(call).subscribeOn(jdbcScheduler).onErrorResume(RejectedExecutionException.class,
+				e -> {
+					log.error("Too many requests are waiting for the database. {}", e.toString());
+					return Mono.just(new ResponseEntity<String>("Too many requests are waiting for the database.",
+							HttpStatus.SERVICE_UNAVAILABLE));
+				});
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.example.demo.sl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Configuration of the <i>reactive</i> profile. Requests are served by Netty
+ * event loop threads, while blocking calls of MessageService are executed by
+ * a small fixed pool of JDBC threads with a bounded queue, so the number of
+ * threads does not depend on the number of connected clients.
+ * <p>
+ * The classes of the profile are kept in src&#47reactive and built only with
+ * the <i>reactive</i> Maven profile, so the default build does not depend on
+ * WebFlux and Netty.
+ *
+ * @author serhii.shvets
+ *
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfiguration {
+
+	/**
+	 * Netty server is preferred to Tomcat, which would be chosen by Spring Boot
+	 * as it is present on the classpath for the default servlet stack.
+	 *
+	 * @return factory of Netty web server.
+	 */
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	/**
+	 * Scheduler for blocking database calls. Tasks submitted when the queue is
+	 * full are rejected, ReactiveMessageController answers them with 503 status.
+	 *
+	 * @param threads   - number of JDBC threads, should match the size of the
+	 *                  connection pool.
+	 * @param queueSize - maximal number of calls waiting for a JDBC thread.
+	 * @return Scheduler of JDBC threads.
+	 */
+	@Bean(destroyMethod = "dispose")
+	public Scheduler jdbcScheduler(@Value("${message.reactive.jdbc-threads:10}") int threads,
+			@Value("${message.reactive.queue-size:10000}") int queueSize) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "message-jdbc-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return Schedulers.fromExecutorService(new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), threadFactory));
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.SQLTransientConnectionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.example.demo.dl.DatabaseCircuitBreaker;
+import com.example.demo.dl.DatabaseCircuitBreaker.State;
+
+/**
+ * This class containing a methods designed to test the states of
+ * DatabaseCircuitBreaker: opening after consecutive connection failures and the
+ * trial call let through in the half open state.
+ */
+public class DatabaseCircuitBreakerTest {
+
+	private static final SQLTransientConnectionException FAILURE = new SQLTransientConnectionException(
+			"Connection is not available");
+
+	private DatabaseCircuitBreaker circuitBreaker;
+
+	@Before
+	public void setup() {
+		circuitBreaker = new DatabaseCircuitBreaker(3, 50);
+	}
+
+	private void fail(int times) {
+		for (int i = 0; i < times; i++) {
+			assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+			circuitBreaker.onFailure(FAILURE);
+		}
+	}
+
+	/**
+	 * Case for testing opening of the breaker after consecutive failures.
+	 * <p>
+	 * Expected result is that a success resets the failures and the breaker
+	 * rejects requests after the threshold of consecutive failures is reached.
+	 */
+	@Test
+	public void opensAfterConsecutiveFailuresTest() {
+		fail(2);
+		circuitBreaker.onSuccess();
+		fail(2);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+		fail(1);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+		assertThat(circuitBreaker.getRejectedCount()).isEqualTo(1);
+	}
+
+	/**
+	 * Case for testing the half open state after the open duration.
+	 * <p>
+	 * Expected result is that only a single trial request is permitted, its
+	 * failure opens the breaker again and its success closes it.
+	 */
+	@Test
+	public void halfOpenTrialTest() throws InterruptedException {
+		fail(3);
+		Thread.sleep(60);
+
+		assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+		assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+		circuitBreaker.onFailure(FAILURE);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+		Thread.sleep(60);
+
+		assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+		circuitBreaker.onSuccess();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+	}
+
+}
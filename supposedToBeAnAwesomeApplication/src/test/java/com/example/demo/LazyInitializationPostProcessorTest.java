@@ -0,0 +1,49 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * This class containing a methods designed to test which singletons of a bean
+ * factory LazyInitializationPostProcessor makes lazy, leaving eager the beans
+ * annotated with Lazy(false) and infrastructure beans.
+ */
+public class LazyInitializationPostProcessorTest {
+
+	static class DefaultBean {
+	}
+
+	@Lazy(false)
+	static class EagerBean {
+	}
+
+	/**
+	 * Case for testing which beans are made lazy.
+	 * <p>
+	 * Expected result is that singletons are lazy, except for beans annotated
+	 * with Lazy(false) and infrastructure beans.
+	 */
+	@Test
+	public void singletonsMadeLazyTest() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		AnnotatedBeanDefinitionReader reader = new AnnotatedBeanDefinitionReader(beanFactory);
+		reader.registerBean(DefaultBean.class, "defaultBean");
+		reader.registerBean(EagerBean.class, "eagerBean");
+		RootBeanDefinition infrastructureDefinition = new RootBeanDefinition(Object.class);
+		infrastructureDefinition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		beanFactory.registerBeanDefinition("infrastructureBean", infrastructureDefinition);
+
+		new LazyInitializationPostProcessor().postProcessBeanFactory(beanFactory);
+
+		assertThat(beanFactory.getBeanDefinition("defaultBean").isLazyInit()).isTrue();
+		assertThat(beanFactory.getBeanDefinition("eagerBean").isLazyInit()).isFalse();
+		assertThat(beanFactory.getBeanDefinition("infrastructureBean").isLazyInit()).isFalse();
+	}
+
+}
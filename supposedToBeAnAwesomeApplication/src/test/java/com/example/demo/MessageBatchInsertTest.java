@@ -0,0 +1,104 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.bl.MessageService;
+import com.example.demo.dl.MessageRepository;
+import com.example.demo.sl.MessageController;
+
+/**
+ * This class containing a methods designed to test the batch ingest of
+ * MessageController.postMessages(InputStream body) on the embedded database of
+ * the <i>inmemory</i> profile, when messages with IDs of the batch are inserted
+ * concurrently by another connection.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "message.search.enabled=false")
+@ActiveProfiles("inmemory")
+public class MessageBatchInsertTest {
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	@Autowired
+	private MessageService mesServ;
+
+	@Autowired
+	private MessageController mesCont;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Actions performed after every test: restoring MessageRepository of
+	 * MessageService and removing messages posted by the test.
+	 */
+	@After
+	public void clean() {
+		ReflectionTestUtils.setField(mesServ, "messageRepository", messageRepository);
+		jdbcTemplate.update("delete from messages where m_id in (2001, 2002, 2003)");
+	}
+
+	/**
+	 * Case for testing a postMessages(InputStream body) method when a message
+	 * with one of IDs of the batch is inserted by another connection after the
+	 * check of occupied IDs and before the insert of the batch.
+	 * <p>
+	 * Expected response is the batch posted again without the concurrently
+	 * inserted ID, which is reported as occupied with HttpStatus.OK.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void postMappingMessagesWithConcurrentlyInsertedIDPositiveTest() throws Exception {
+		String body = "{\"id\": 2001, \"text\": \"First text\"}\n{\"id\": 2002, \"text\": \"Second text\"}\n"
+				+ "{\"id\": 2003, \"text\": \"Third text\"}\n";
+		AtomicBoolean raced = new AtomicBoolean();
+		MessageRepository racingRepository = Mockito.mock(MessageRepository.class,
+				AdditionalAnswers.delegatesTo(messageRepository));
+		ReflectionTestUtils.setField(mesServ, "messageRepository", racingRepository);
+		Mockito.doAnswer(invocation -> {
+			List<Long> existingIds = messageRepository.findExistingIds(invocation.getArgument(0));
+			if (raced.compareAndSet(false, true)) {
+				// the transaction of the batch holds the connection of this thread
+				CompletableFuture.runAsync(() -> jdbcTemplate.update("insert into messages (m_id, m_text, gr_id, m_date)"
+						+ " values (2002, 'Concurrent text', 1, now())")).get();
+			}
+			return existingIds;
+		}).when(racingRepository).findExistingIds(any(Collection.class));
+
+		ResponseEntity<String> actualResponseEntity = mesCont
+				.postMessages(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(actualResponseEntity.getBody()).describedAs("Body is not equeal to the expected one")
+				.isEqualTo("Posted new messages count: 2\n"
+						+ "Unable to post new messages with the following IDs since messages with provided IDs"
+						+ " are already exist: [2002]\n");
+		assertThat(actualResponseEntity.getStatusCode()).describedAs("HttpStatus is not equeal to the expected one")
+				.isEqualTo(HttpStatus.OK);
+		assertThat(jdbcTemplate.queryForList("select m_text from messages where m_id between 2001 and 2003"
+				+ " order by m_id", String.class)).containsExactly("First text", "Concurrent text", "Third text");
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.example.demo.bl.MessageChangeEvent;
+import com.example.demo.bl.MessageChangeEvent.Type;
+import com.example.demo.bl.MessageChangeFeed;
+
+/**
+ * This class containing a methods designed to test the subscriptions of
+ * MessageChangeFeed: resuming after the sequence of the last received change,
+ * dropping of a subscriber which does not keep up or gets no thread, and
+ * isolation of other subscribers from a blocked one.
+ */
+public class MessageChangeFeedTest {
+
+	private static final int HISTORY_SIZE = 4;
+	private static final int BUFFER_SIZE = 2;
+	private static final int MAX_THREADS = 4;
+
+	private MessageChangeFeed feed;
+
+	@Before
+	public void setup() {
+		feed = new MessageChangeFeed(HISTORY_SIZE, BUFFER_SIZE, MAX_THREADS);
+	}
+
+	@After
+	public void clean() {
+		feed.shutdown();
+	}
+
+	private BlockingQueue<MessageChangeEvent> subscribe(Long lastSequence) {
+		BlockingQueue<MessageChangeEvent> events = new LinkedBlockingQueue<MessageChangeEvent>();
+		feed.subscribe(lastSequence, events::add, () -> {
+		});
+		return events;
+	}
+
+	private MessageChangeEvent takeEvent(BlockingQueue<MessageChangeEvent> events) throws InterruptedException {
+		MessageChangeEvent event = events.poll(10, TimeUnit.SECONDS);
+		assertThat(event).describedAs("No event was received.").isNotNull();
+		return event;
+	}
+
+	/**
+	 * Case for testing subscribing with and without the sequence of the last
+	 * received event.
+	 * <p>
+	 * Expected result is RESET event for a new subscriber followed by the
+	 * published events, the missed events for a resuming subscriber, and RESET
+	 * event for a subscriber which missed more events than it can be sent.
+	 */
+	@Test
+	public void subscribeAndResumePositiveTest() throws InterruptedException {
+		BlockingQueue<MessageChangeEvent> events = subscribe(null);
+		MessageChangeEvent reset = takeEvent(events);
+		feed.publish(Type.POST, 1L, null);
+		feed.publish(Type.DELETE, 1L, null);
+		MessageChangeEvent post = takeEvent(events);
+		MessageChangeEvent delete = takeEvent(events);
+
+		assertThat(reset.getType()).isEqualTo(Type.RESET);
+		assertThat(post.getType()).isEqualTo(Type.POST);
+		assertThat(post.getSequence()).isEqualTo(reset.getSequence() + 1);
+		assertThat(delete.getType()).isEqualTo(Type.DELETE);
+		assertThat(delete.getSequence()).isEqualTo(reset.getSequence() + 2);
+
+		assertThat(takeEvent(subscribe(post.getSequence())).getSequence()).isEqualTo(delete.getSequence());
+
+		feed.publish(Type.POST, 2L, null);
+		feed.publish(Type.POST, 3L, null);
+		assertThat(takeEvent(subscribe(post.getSequence())).getType()).isEqualTo(Type.RESET);
+	}
+
+	/**
+	 * Case for testing a subscriber which does not keep up with the published
+	 * events.
+	 * <p>
+	 * Expected result is that the subscriber is dropped once its queue is full,
+	 * without blocking the publishing, and notified once its listener returns.
+	 */
+	@Test
+	public void slowSubscriberDroppedPositiveTest() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch dropped = new CountDownLatch(1);
+		feed.subscribe(null, event -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, dropped::countDown);
+
+		for (long id = 1; id <= BUFFER_SIZE + 2; id++) {
+			feed.publish(Type.POST, id, null);
+		}
+		assertThat(feed.getSubscriberCount()).isEqualTo(0);
+		assertThat(dropped.getCount()).describedAs("The subscriber was notified while its listener is blocked.")
+				.isEqualTo(1);
+		release.countDown();
+
+		assertThat(dropped.await(10, TimeUnit.SECONDS)).describedAs("The subscriber was not dropped.").isTrue();
+	}
+
+	/**
+	 * Case for testing a subscriber whose listener is blocked, like a listener
+	 * writing to a client which does not read.
+	 * <p>
+	 * Expected result is that other subscribers still receive the published
+	 * events.
+	 */
+	@Test
+	public void blockedSubscriberDoesNotHoldOthersPositiveTest() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		feed.subscribe(null, event -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, () -> {
+		});
+		try {
+			BlockingQueue<MessageChangeEvent> events = subscribe(null);
+			takeEvent(events);
+			feed.publish(Type.POST, 1L, null);
+
+			assertThat(takeEvent(events).getType()).isEqualTo(Type.POST);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	/**
+	 * Case for testing a new subscriber while all threads of the feed are held by
+	 * blocked listeners.
+	 * <p>
+	 * Expected result is that the new subscriber is dropped at once, without
+	 * starting more threads.
+	 */
+	@Test
+	public void subscriberWithoutFreeThreadDroppedPositiveTest() throws InterruptedException {
+		CountDownLatch blocked = new CountDownLatch(MAX_THREADS);
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < MAX_THREADS; i++) {
+			feed.subscribe(null, event -> {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, () -> {
+			});
+		}
+		try {
+			assertThat(blocked.await(10, TimeUnit.SECONDS)).describedAs("The listeners were not called.").isTrue();
+			CountDownLatch dropped = new CountDownLatch(1);
+			BlockingQueue<MessageChangeEvent> events = new LinkedBlockingQueue<MessageChangeEvent>();
+			feed.subscribe(null, events::add, dropped::countDown);
+
+			assertThat(dropped.getCount()).describedAs("The subscriber was not dropped.").isEqualTo(0);
+			assertThat(events).isEmpty();
+			assertThat(feed.getSubscriberCount()).isEqualTo(MAX_THREADS);
+		} finally {
+			release.countDown();
+		}
+	}
+
+}
@@ -13,6 +13,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.CannotCreateTransactionException;
 
@@ -31,6 +32,7 @@ import com.example.demo.sl.MessageController;
  */
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("inmemory")
 public class MessageControllerLoggerTest {
 
 	@Autowired
@@ -107,8 +109,7 @@ public class MessageControllerLoggerTest {
 	@Test
 	public void postMessageSuccesfulLoggerPositiveTest() {
 
-		Mockito.when(mesService.checkMessageIfExixting(messageId)).thenReturn(false);
-		Mockito.when(mesService.postMessage(messageId, messageInitializationText, 1)).thenReturn(mesEntity);
+		Mockito.when(mesService.postMessageIfAbsent(messageId, messageInitializationText, 1)).thenReturn(mesEntity);
 		Mockito.when(mesService.getDataFromMessageEntity(mesEntity)).thenReturn(expectedDataFromMessageEntity);
 
 		mesCont.postMessage(messageId, messageInitializationText);
@@ -134,7 +135,8 @@ public class MessageControllerLoggerTest {
 	@Test
 	public void postMessageUnsuccesfulLoggerPositiveTest() {
 
-		Mockito.when(mesService.checkMessageIfExixting(any(int.class))).thenReturn(true);
+		Mockito.when(mesService.postMessageIfAbsent(any(int.class), any(String.class), any(int.class)))
+				.thenReturn(null);
 
 		mesCont.postMessage(messageId, messageInitializationText);
 
@@ -162,7 +164,8 @@ public class MessageControllerLoggerTest {
 
 		CannotCreateTransactionException exception = new CannotCreateTransactionException(textOfException);
 
-		Mockito.when(mesService.checkMessageIfExixting(any(int.class))).thenThrow(exception);
+		Mockito.when(mesService.postMessageIfAbsent(any(int.class), any(String.class), any(int.class)))
+				.thenThrow(exception);
 		mesCont.postMessage(messageId, messageInitializationText);
 
 		String lastLineOfLog = getLastLineFromLog();
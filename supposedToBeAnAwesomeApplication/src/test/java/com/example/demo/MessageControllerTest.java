@@ -1,10 +1,23 @@
 package com.example.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
-
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.junit.After;
 import org.junit.Before;
@@ -14,14 +27,40 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.CannotCreateTransactionException;
-
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.demo.bl.BatchInsertResult;
+import com.example.demo.bl.IndexNotReadyException;
+import com.example.demo.bl.MessagePage;
 import com.example.demo.bl.MessageService;
+import com.example.demo.bl.MessageWriteJournal;
+import com.example.demo.bl.MessageWriteJournal.Operation;
 import com.example.demo.dl.MessageEntity;
 import com.example.demo.dl.MessageRepository;
+import com.example.demo.sl.MessageStructuredWriter;
+import com.example.demo.sl.MessageWebMvcTagsProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import io.micrometer.core.instrument.Tag;
 
 /**
  * IMPORTANT! -> Create MVC TESTS with mocking! Create positive and negative tests checking HTTP STATUSES.
@@ -32,9 +71,11 @@ import com.example.demo.dl.MessageRepository;
  */
 
 import com.example.demo.sl.MessageController;
+import com.example.demo.sl.MessagerControllerInterface;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("inmemory")
 public class MessageControllerTest {
 
 	@Autowired
@@ -43,14 +84,24 @@ public class MessageControllerTest {
 	@MockBean
 	private MessageService mesService;
 
+	@MockBean
+	private MessageWriteJournal writeJournal;
+
 	@Autowired
 	private MessageRepository messageRepository;
 
+	@Autowired
+	private WebApplicationContext context;
+
 	MessageEntity mesEntity;
 
 	@Before
 	public void setup() {
 		mesEntity = new MessageEntity();
+
+		Mockito.when(mesService.appendDataFromMessageEntity(any(), any(StringBuilder.class)))
+				.thenAnswer(invocation -> invocation.<StringBuilder>getArgument(1)
+						.append(mesService.getDataFromMessageEntity(invocation.getArgument(0))));
 	}
 
 	@After
@@ -177,10 +228,10 @@ public class MessageControllerTest {
 		Mockito.when(mesService.findAll()).thenReturn(messages);
 
 		ResponseEntity<String> actualResponseFromTestedMethod = mesCont.showMessages();
-		ResponseEntity<String> expectedResponseFromTestedMethod = new ResponseEntity<String>(expectedResultString,
-				HttpStatus.OK);
 
-		assertThat(actualResponseFromTestedMethod).isEqualTo(expectedResponseFromTestedMethod);
+		assertThat(actualResponseFromTestedMethod.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(actualResponseFromTestedMethod.getBody()).isEqualTo(expectedResultString);
+		assertThat(actualResponseFromTestedMethod.getHeaders().getETag()).startsWith("W/");
 
 	}
 
@@ -233,6 +284,380 @@ public class MessageControllerTest {
 
 	}
 
+	/**
+	 * Case for testing streamMessages(int page, int limit) method which is
+	 * streaming messages stored inside database.
+	 * <p>
+	 * Expected response is the same text as returned by showMessages() method
+	 * and HttpStatus.OK.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getMappingStreamMessagesPositiveTest() throws IOException {
+
+		String expectedResultString = "\tMessages stored inside DB:\n\n";
+		List<MessageEntity> messages = new LinkedList<MessageEntity>();
+
+		String[] messageTexts = { "Text of first message", "Text of second message", "Text of third message" };
+
+		for (int i = 0; i < messageTexts.length; i++) {
+			MessageEntity message = new MessageEntity();
+			message.setMesId(new Long(i));
+			message.setDate();
+			message.setGrId(new Long(1));
+			message.setText(messageTexts[i]);
+
+			messages.add(message);
+
+			String dataFromMessageEntity = "Message with id " + i + ":\n";
+			Mockito.when(mesService.getDataFromMessageEntity(message)).thenReturn(dataFromMessageEntity);
+			expectedResultString += dataFromMessageEntity;
+		}
+
+		Mockito.when(mesService.forEachMessage(any(int.class), any(int.class), any(Consumer.class)))
+				.thenAnswer(invocation -> {
+					messages.forEach(invocation.getArgument(2));
+					return messages.size();
+				});
+
+		ResponseEntity<StreamingResponseBody> actualResponse = mesCont.streamMessages(0, 0);
+		ByteArrayOutputStream actualBody = new ByteArrayOutputStream();
+		actualResponse.getBody().writeTo(actualBody);
+
+		assertThat(actualBody.toString(StandardCharsets.UTF_8.name())).isEqualTo(expectedResultString);
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	/**
+	 * Case for testing streamMessages(int page, int limit) method in case if there
+	 * are no data stored inside database.
+	 * <p>
+	 * Expected response is message reporting that there are no data in database.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getMappingStreamNoMessagesPositiveTest() throws IOException {
+
+		Mockito.when(mesService.forEachMessage(any(int.class), any(int.class), any(Consumer.class))).thenReturn(0);
+
+		ByteArrayOutputStream actualBody = new ByteArrayOutputStream();
+		mesCont.streamMessages(0, 10).getBody().writeTo(actualBody);
+
+		assertThat(actualBody.toString(StandardCharsets.UTF_8.name()))
+				.describedAs("The actual response body is different from the expected one. ")
+				.isEqualTo("There are no messages stored inside the database.\n");
+	}
+
+	/**
+	 * Case for testing streamMessages(int page, int limit) method which is
+	 * streaming messages stored inside database.<br>
+	 * In this test case is tested case when there is no connection to the
+	 * database. The request is performed through the dispatcher, since the
+	 * stream fails after the handler method returned.
+	 * <p>
+	 * Expected response is HttpStatus.InternalServerError without the ETag of the
+	 * listing, tagged as a database connection failure.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getMappingStreamCannotCreateTransactionExceptionNegativeTest() throws Exception {
+
+		Mockito.when(mesService.forEachMessage(any(int.class), any(int.class), any(Consumer.class)))
+				.thenThrow(new CannotCreateTransactionException("Text of exception"));
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+		MvcResult result = mockMvc
+				.perform(get(MessagerControllerInterface.MESSAGES_STREAM_PATH).accept(MediaType.TEXT_PLAIN))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isInternalServerError())
+				.andExpect(header().doesNotExist(HttpHeaders.ETAG))
+				.andExpect(content().string(containsString("Check your database connection parameters.\n")));
+
+		assertThat(new MessageWebMvcTagsProvider().getTags(result.getRequest(), result.getResponse(), null, null))
+				.describedAs("The request is not tagged as a database connection failure.")
+				.contains(Tag.of("outcome", MessageWebMvcTagsProvider.DATABASE_FAILURE_OUTCOME));
+	}
+
+	/**
+	 * Case for testing streamMessagesStructured(int page, int limit, String
+	 * accept) method for a client accepting JSON.
+	 * <p>
+	 * Expected response is a JSON array of the messages and HttpStatus.OK.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getMappingStreamMessagesAsJsonPositiveTest() throws IOException {
+
+		mesEntity.setMesId(1L);
+		mesEntity.setGrId(2L);
+		mesEntity.setText("Text of message");
+		mesEntity.setDate();
+		Mockito.when(mesService.forEachMessage(any(int.class), any(int.class), any(Consumer.class)))
+				.thenAnswer(invocation -> {
+					invocation.<Consumer<MessageEntity>>getArgument(2).accept(mesEntity);
+					return 1;
+				});
+
+		ResponseEntity<StreamingResponseBody> actualResponse = mesCont.streamMessagesStructured(0, 0,
+				"application/json");
+		ByteArrayOutputStream actualBody = new ByteArrayOutputStream();
+		actualResponse.getBody().writeTo(actualBody);
+		JsonNode messages = new ObjectMapper().readTree(actualBody.toByteArray());
+
+		assertThat(actualResponse.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON))
+				.isTrue();
+		assertThat(messages.size()).isEqualTo(1);
+		assertThat(messages.get(0).get("id").asLong()).isEqualTo(1L);
+		assertThat(messages.get(0).get("text").asText()).isEqualTo("Text of message");
+		assertThat(messages.get(0).get("grId").asLong()).isEqualTo(2L);
+		assertThat(messages.get(0).get("date").asText()).isEqualTo(mesEntity.getDate().toString());
+	}
+
+	/**
+	 * Case for testing streamMessages(int page, int limit) method for a client
+	 * sending back the ETag of the previous response in If-None-Match header.
+	 * <p>
+	 * Expected response is HttpStatus.NOT_MODIFIED without reading the messages
+	 * until the message table is changed, and HttpStatus.OK after that.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getMappingStreamNotModifiedPositiveTest() {
+
+		Mockito.when(mesService.getChangeCount()).thenReturn(5L);
+		String eTag = mesCont.streamMessages(0, 0).getHeaders().getETag();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				MessagerControllerInterface.MESSAGES_STREAM_PATH);
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+		try {
+			assertThat(mesCont.streamMessages(0, 0).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+			Mockito.verify(mesService, Mockito.never()).forEachMessage(any(int.class), any(int.class),
+					any(Consumer.class));
+
+			Mockito.when(mesService.getChangeCount()).thenReturn(6L);
+			ResponseEntity<StreamingResponseBody> actualResponse = mesCont.streamMessages(0, 0);
+
+			assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(actualResponse.getHeaders().getETag()).isNotEqualTo(eTag);
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+	}
+
+	/**
+	 * Case for testing getMessageByIdStructured(int id, String accept) method for
+	 * a client preferring CBOR.
+	 * <p>
+	 * Expected response is a CBOR object of the message, or HttpStatus.NOT_FOUND
+	 * for a message which does not exist.
+	 */
+	@Test
+	public void getMappingMessageByIDAsCborPositiveTest() throws IOException {
+
+		mesEntity.setMesId(1L);
+		mesEntity.setGrId(1L);
+		mesEntity.setText("Text of message");
+		mesEntity.setDate();
+		Mockito.when(mesService.getMessageById(1)).thenReturn(mesEntity);
+
+		ResponseEntity<StreamingResponseBody> actualResponse = mesCont.getMessageByIdStructured(1,
+				"application/json;q=0.5, application/cbor");
+		ByteArrayOutputStream actualBody = new ByteArrayOutputStream();
+		actualResponse.getBody().writeTo(actualBody);
+		JsonNode message = new ObjectMapper(new CBORFactory()).readTree(actualBody.toByteArray());
+
+		assertThat(actualResponse.getHeaders().getContentType()).isEqualTo(MessageStructuredWriter.APPLICATION_CBOR);
+		assertThat(message.get("id").asLong()).isEqualTo(1L);
+		assertThat(message.get("text").asText()).isEqualTo("Text of message");
+		assertThat(mesCont.getMessageByIdStructured(2, "application/cbor").getStatusCode())
+				.isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
+	/**
+	 * Case for testing getMessageById(int id) method requested by a browser,
+	 * which accepts text/html, and by a client accepting JSON. The requests are
+	 * performed through the dispatcher, which selects the handler and the type of
+	 * the response.
+	 * <p>
+	 * Expected response is the message as text/plain for the browser, so its
+	 * text is not rendered as markup, and as application/json for the client.
+	 */
+	@Test
+	public void getMappingMessageByIDFromBrowserPositiveTest() throws Exception {
+
+		mesEntity.setMesId(1L);
+		mesEntity.setGrId(1L);
+		mesEntity.setText("<script>alert(1)</script>");
+		mesEntity.setDate();
+		Mockito.when(mesService.getMessageById(1)).thenReturn(mesEntity);
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+		mockMvc.perform(get(MessagerControllerInterface.MESSAGE_PATH, 1).header(HttpHeaders.ACCEPT,
+				"text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")).andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN));
+		mockMvc.perform(get(MessagerControllerInterface.MESSAGE_PATH, 1).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk()).andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+
+	/**
+	 * Case for testing streamMessagesBetween(LocalDate from, LocalDate to, int
+	 * days) method which is streaming messages of the last days.
+	 * <p>
+	 * Expected result is the service called with the period ending today and
+	 * HttpStatus.OK.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getMappingStreamMessagesOfLastDaysPositiveTest() throws IOException {
+
+		LocalDate today = LocalDate.now();
+		Mockito.when(mesService.forEachMessageBetween(any(LocalDate.class), any(LocalDate.class), any(Consumer.class)))
+				.thenReturn(0);
+
+		ResponseEntity<StreamingResponseBody> actualResponse = mesCont.streamMessagesBetween(null, null, 7);
+		actualResponse.getBody().writeTo(new ByteArrayOutputStream());
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		Mockito.verify(mesService).forEachMessageBetween(Mockito.eq(today.minusDays(6)), Mockito.eq(today),
+				any(Consumer.class));
+	}
+
+	/**
+	 * Case for testing streamGroupMessagesBetween(int grId, LocalDate from,
+	 * LocalDate to, int days) method in case if the period is not valid.
+	 * <p>
+	 * Expected response is HttpStatus.BAD_REQUEST.
+	 */
+	@Test
+	public void getMappingStreamGroupMessagesOfInvalidPeriodNegativeTest() throws IOException {
+
+		LocalDate today = LocalDate.now();
+
+		ResponseEntity<StreamingResponseBody> actualResponse = mesCont.streamGroupMessagesBetween(1, today,
+				today.minusDays(1), 0);
+		ByteArrayOutputStream actualBody = new ByteArrayOutputStream();
+		actualResponse.getBody().writeTo(actualBody);
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(actualBody.toString(StandardCharsets.UTF_8.name())).contains("is after the last one");
+		assertThat(mesCont.streamGroupMessagesBetween(1, null, null, 0).getStatusCode())
+				.isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Case for testing showMessagesPage(Long after, int limit) method which is
+	 * returning a page of messages following the provided cursor.
+	 * <p>
+	 * Expected response is data of messages of the page, cursor of the next page
+	 * in X-Next-Cursor header and HttpStatus.OK.
+	 */
+	@Test
+	public void getMappingMessagesPagePositiveTest() {
+
+		mesEntity.setMesId(5L);
+		mesEntity.setGrId(1L);
+		mesEntity.setText("Text to inialize the object");
+		mesEntity.setDate();
+
+		List<MessageEntity> messages = new LinkedList<MessageEntity>();
+		messages.add(mesEntity);
+
+		Mockito.when(mesService.findMessagesAfter(4L, 1)).thenReturn(new MessagePage(messages, 5L));
+		Mockito.when(mesService.getDataFromMessageEntity(mesEntity)).thenReturn("Message with id 5:\n");
+
+		ResponseEntity<String> actualResponse = mesCont.showMessagesPage(4L, 1);
+
+		assertThat(actualResponse.getBody())
+				.isEqualTo("\tMessages stored inside DB:\n\nMessage with id 5:\nNext cursor: 5\n");
+		assertThat(actualResponse.getHeaders().getFirst(MessageController.NEXT_CURSOR_HEADER)).isEqualTo("5");
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	/**
+	 * Case for testing showGroupMessagesPage(int grId, Long after, int limit)
+	 * method which is returning the last page of messages of the group.
+	 * <p>
+	 * Expected response is data of messages of the page without cursor and
+	 * HttpStatus.OK.
+	 */
+	@Test
+	public void getMappingGroupMessagesPagePositiveTest() {
+
+		mesEntity.setMesId(5L);
+		mesEntity.setGrId(7L);
+		mesEntity.setText("Text to inialize the object");
+		mesEntity.setDate();
+
+		List<MessageEntity> messages = new LinkedList<MessageEntity>();
+		messages.add(mesEntity);
+
+		Mockito.when(mesService.findGroupMessagesAfter(7, null, 500)).thenReturn(new MessagePage(messages, null));
+		Mockito.when(mesService.getDataFromMessageEntity(mesEntity)).thenReturn("Message with id 5:\n");
+
+		ResponseEntity<String> actualResponse = mesCont.showGroupMessagesPage(7, null, 500);
+
+		assertThat(actualResponse.getBody()).isEqualTo("\tMessages stored inside DB:\n\nMessage with id 5:\n");
+		assertThat(actualResponse.getHeaders().getFirst(MessageController.NEXT_CURSOR_HEADER)).isNull();
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	/**
+	 * Case for testing countGroupMessages(int grId) method.
+	 * <p>
+	 * Expected response is number of messages of the group and HttpStatus.OK, or
+	 * HttpStatus.INTERNAL_SERVER_ERROR in case of troubles with the database
+	 * connection.
+	 */
+	@Test
+	public void getMappingCountGroupMessagesTest() {
+
+		Mockito.when(mesService.countGroupMessages(7)).thenReturn(42L);
+		Mockito.when(mesService.countGroupMessages(8)).thenThrow(new CannotCreateTransactionException(""));
+
+		ResponseEntity<String> actualResponse = mesCont.countGroupMessages(7);
+
+		assertThat(actualResponse.getBody()).isEqualTo("Number of messages in group 7: 42\n");
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(mesCont.countGroupMessages(8).getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
+	/**
+	 * Case for testing searchMessages(String query, int limit) method.
+	 * <p>
+	 * Expected response is data of matching messages and HttpStatus.OK,
+	 * HttpStatus.BAD_REQUEST for an empty query, HttpStatus.SERVICE_UNAVAILABLE
+	 * while the search index is being built and HttpStatus.INTERNAL_SERVER_ERROR
+	 * for other failures.
+	 */
+	@Test
+	public void getMappingSearchMessagesTest() {
+
+		List<MessageEntity> messages = new LinkedList<MessageEntity>();
+		messages.add(mesEntity);
+
+		Mockito.when(mesService.searchMessages("hello", 100)).thenReturn(messages);
+		Mockito.when(mesService.searchMessages("nothing", 100)).thenReturn(new LinkedList<MessageEntity>());
+		Mockito.when(mesService.searchMessages("early", 100))
+				.thenThrow(new IndexNotReadyException("Search index is not built yet"));
+		Mockito.when(mesService.searchMessages("failing", 100)).thenThrow(new IllegalStateException());
+		Mockito.when(mesService.getDataFromMessageEntity(mesEntity)).thenReturn("Message with id 5:\n");
+
+		ResponseEntity<String> actualResponse = mesCont.searchMessages("hello", 100);
+
+		assertThat(actualResponse.getBody()).isEqualTo("\tMessages stored inside DB:\n\nMessage with id 5:\n");
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(mesCont.searchMessages("nothing", 100).getBody()).isEqualTo(MessageController.NO_MATCHING_MESSAGES);
+		assertThat(mesCont.searchMessages(" ", 100).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(mesCont.searchMessages("early", 100).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(mesCont.searchMessages("failing", 100).getStatusCode())
+				.isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
 	/// PutMapping tests
 	/**
 	 * 
@@ -251,8 +676,7 @@ public class MessageControllerTest {
 		mesEntity.setText("Text to inialize the object");
 		mesEntity.setDate();
 
-		Mockito.when(mesService.checkMessageIfExixting(mesEntity.getMesId().intValue())).thenReturn(true);
-		Mockito.when(mesService.postMessage(any(Integer.class), any(String.class), any(Integer.class)))
+		Mockito.when(mesService.updateMessageText(any(Integer.class), any(String.class), any()))
 				.thenReturn(mesEntity);
 
 		String newTextOfMessage = "Some new text to put into the message";
@@ -270,7 +694,8 @@ public class MessageControllerTest {
 
 		mesCont.postMessage(mesEntity.getMesId().intValue(), mesEntity.getText());
 
-		ResponseEntity<String> actualResponse = mesCont.putMessage(mesEntity.getMesId().intValue(), newTextOfMessage);
+		ResponseEntity<String> actualResponse = mesCont.putMessage(mesEntity.getMesId().intValue(), newTextOfMessage,
+				null, null);
 
 		assertThat(actualResponse.getBody()).contains(newTextOfMessage);
 		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
@@ -291,9 +716,9 @@ public class MessageControllerTest {
 		int idOfMessage = 1;
 		String newTextOfMessage = "Some new text to update an old message object";
 
-		Mockito.when(mesService.checkMessageIfExixting(any(Integer.class))).thenReturn(false);
+		Mockito.when(mesService.updateMessageText(any(Integer.class), any(String.class), any())).thenReturn(null);
 
-		ResponseEntity<String> actualResponse = mesCont.putMessage(idOfMessage, newTextOfMessage);
+		ResponseEntity<String> actualResponse = mesCont.putMessage(idOfMessage, newTextOfMessage, null, null);
 
 		assertThat(actualResponse.getBody()).contains(
 				"Unable to update a new message with ID " + idOfMessage + " since such message is not existing");
@@ -316,14 +741,50 @@ public class MessageControllerTest {
 		mesEntity.setGrId(1L);
 		mesEntity.setDate();
 
-		Mockito.when(mesService.checkMessageIfExixting(any(Integer.class))).thenReturn(true);
-		Mockito.when(mesService.postMessage(any(int.class), any(String.class), any(int.class))).thenReturn(mesEntity);
+		Mockito.when(mesService.updateMessageText(any(int.class), any(), any())).thenReturn(mesEntity);
 
-		ResponseEntity<String> actualResponse = mesCont.putMessage(mesEntity.getMesId().intValue(), null);
+		ResponseEntity<String> actualResponse = mesCont.putMessage(mesEntity.getMesId().intValue(), null, null, null);
 
 		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
 	}
 
+	/**
+	 * Case for testing putMessage(int id, String newText, Long version, String
+	 * ifMatch) method with the ETag of the message in If-Match header.<br>
+	 * In this test case the message is updated by the first request and the
+	 * second one, sending the same ETag, is in conflict with it.
+	 * <p>
+	 * Expected response is HttpStatus.OK with the ETag of the new version for the
+	 * first request, HttpStatus.CONFLICT for the second one, and
+	 * HttpStatus.BAD_REQUEST for an ETag of another message or a weak ETag.
+	 */
+	@Test
+	public void putMappingMessageOfChangedVersionNegativeTest() {
+		MessageEntity updated = new MessageEntity();
+		updated.setMesId(1L);
+		updated.setText("Some new text");
+		updated.setGrId(2L);
+		updated.setDate();
+		updated.setVersion(4L);
+
+		Mockito.when(mesService.updateMessageTextIfMatch(1, "Some new text", 3L, 0x1f2e)).thenReturn(updated)
+				.thenThrow(new OptimisticLockingFailureException("Message with ID 1 was changed"));
+		Mockito.when(mesService.getDataFromMessageEntity(updated)).thenReturn("Message with id 1:\n");
+
+		ResponseEntity<String> firstResponse = mesCont.putMessage(1, "Some new text", null, "\"1-3-1f2e-plain\"");
+		ResponseEntity<String> secondResponse = mesCont.putMessage(1, "Some new text", null, "\"1-3-1f2e-plain\"");
+
+		assertThat(firstResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(firstResponse.getHeaders().getETag())
+				.isEqualTo("\"1-4-" + Integer.toHexString(updated.getContentHash()) + "-plain\"");
+		assertThat(secondResponse.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(mesCont.putMessage(1, "Some new text", null, "\"2-3-1f2e-plain\"").getStatusCode())
+				.describedAs("ETag of another message was accepted").isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(mesCont.putMessage(1, "Some new text", null, "W/\"1-3-1f2e-plain\"").getStatusCode())
+				.describedAs("Weak ETag was accepted").isEqualTo(HttpStatus.BAD_REQUEST);
+		Mockito.verify(mesService, Mockito.never()).updateMessageText(any(Integer.class), any(), any());
+	}
+
 	// PostMapping tests
 	/**
 	 * Case for testing a postMessage(int id, String text, int grId) method which is
@@ -351,8 +812,7 @@ public class MessageControllerTest {
 		expectedDataFromMessageEntity += "Date of posting message: \n";
 		expectedDataFromMessageEntity += "\t " + mesEntity.getDate().toString() + "\n\n";
 
-		Mockito.when(mesService.checkMessageIfExixting(messageId)).thenReturn(false);
-		Mockito.when(mesService.postMessage(messageId, startTextOfMessage, 1)).thenReturn(mesEntity);
+		Mockito.when(mesService.postMessageIfAbsent(messageId, startTextOfMessage, 1)).thenReturn(mesEntity);
 		Mockito.when(mesService.getDataFromMessageEntity(mesEntity)).thenReturn(expectedDataFromMessageEntity);
 
 		String expectedMessage = "Created new message with the following parameters:\n"
@@ -366,6 +826,34 @@ public class MessageControllerTest {
 				.isEqualTo(HttpStatus.CREATED);
 	}
 
+	/**
+	 * Case for testing a postNewMessage(String text) method which is posting a new
+	 * MessageEntity object with an ID allocated by the application.
+	 * <p>
+	 * Expected response is message about posted MessageEntity object with
+	 * HttpStatus.Created and the URI of the message in Location header.
+	 */
+	@Test
+	public void postMappingNewMessagePositiveTest() {
+		MessageEntity mesEntity = new MessageEntity();
+		mesEntity.setMesId(51L);
+		mesEntity.setText("Some text to post into the message");
+		mesEntity.setGrId(1L);
+		mesEntity.setDate();
+
+		Mockito.when(mesService.postNewMessage("Some text to post into the message", 1)).thenReturn(mesEntity);
+		Mockito.when(mesService.getDataFromMessageEntity(mesEntity)).thenReturn("Message with id 51:\n");
+
+		ResponseEntity<String> actualResponseEntity = mesCont.postNewMessage("Some text to post into the message");
+
+		assertThat(actualResponseEntity.getStatusCode()).describedAs("HttpStatus is not equeal to the expected one")
+				.isEqualTo(HttpStatus.CREATED);
+		assertThat(actualResponseEntity.getBody()).describedAs("Body is not equeal to the expected one")
+				.isEqualTo("Created new message with the following parameters:\nMessage with id 51:\n");
+		assertThat(actualResponseEntity.getHeaders().getLocation()).describedAs("Location is not the posted message")
+				.hasToString("/Message/51");
+	}
+
 	/**
 	 * Case for testing a postMessage(int id, String text, int grId) method which is
 	 * posting a new MessageEntity object to the database.<br>
@@ -378,8 +866,7 @@ public class MessageControllerTest {
 	public void postMappingMessageWithNullTextNegativeTest() {
 		Integer messageID = 1;
 
-		Mockito.when(mesService.checkMessageIfExixting(messageID)).thenReturn(false);
-		Mockito.when(mesService.postMessage(messageID, null, 1)).thenThrow(new NullPointerException());
+		Mockito.when(mesService.postMessageIfAbsent(messageID, null, 1)).thenThrow(new NullPointerException());
 
 		ResponseEntity<String> actualResponseEntity = mesCont.postMessage(messageID, null);
 
@@ -406,7 +893,7 @@ public class MessageControllerTest {
 		String expectedErrorMessage = "Unable to post a new message with ID " + messageID
 				+ " since message with provided ID is already exists.";
 
-		Mockito.when(mesService.checkMessageIfExixting(messageID)).thenReturn(true);
+		Mockito.when(mesService.postMessageIfAbsent(messageID, startTextOfMessage, 1)).thenReturn(null);
 
 		ResponseEntity<String> actualResponseEntity = mesCont.postMessage(messageID, startTextOfMessage);
 
@@ -416,6 +903,95 @@ public class MessageControllerTest {
 				.isEqualTo(HttpStatus.BAD_REQUEST);
 	}
 
+	/**
+	 * Case for testing a postMessages(InputStream body) method which is posting a
+	 * batch of new MessageEntity objects to the database.<br>
+	 * In this test case is tested case when one of provided IDs is already
+	 * occupied and one of messages has no text.
+	 * <p>
+	 * Expected response is a report with number of posted messages, the occupied
+	 * ID and number of skipped messages and HttpStatus.OK.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void postMappingMessagesWithOccupiedIDPositiveTest() {
+		String body = "{\"id\": 1, \"text\": \"First text\"}\n{\"id\": 2, \"text\": \"Second text\", \"grId\": 2}\n"
+				+ "{\"id\": 3}\n";
+
+		Mockito.when(mesService.postMessages(any(List.class))).thenAnswer(invocation -> {
+			List<MessageEntity> batch = invocation.getArgument(0);
+			BatchInsertResult result = new BatchInsertResult();
+			assertThat(batch).hasSize(2);
+			assertThat(batch.get(1).getGrId()).isEqualTo(2L);
+			result.addInserted();
+			result.addConflict(batch.get(1).getMesId());
+			return result;
+		});
+
+		ResponseEntity<String> actualResponseEntity = mesCont
+				.postMessages(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(actualResponseEntity.getBody()).describedAs("Body is not equeal to the expected one")
+				.isEqualTo("Posted new messages count: 1\n"
+						+ "Unable to post new messages with the following IDs since messages with provided IDs"
+						+ " are already exist: [2]\n" + "Skipped messages without ID or text count: 1\n");
+		assertThat(actualResponseEntity.getStatusCode()).describedAs("HttpStatus is not equeal to the expected one")
+				.isEqualTo(HttpStatus.OK);
+	}
+
+	/**
+	 * Case for testing a postMessages(InputStream body) method which is posting a
+	 * batch of new MessageEntity objects to the database.<br>
+	 * In this test case is tested case when the second chunk of the batch fails
+	 * after the first one was posted.
+	 * <p>
+	 * Expected response is HttpStatus.InternalServerError with a report of the
+	 * messages posted before the failure.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void postMappingMessagesFailingAfterFirstChunkNegativeTest() {
+		String body = "{\"id\": 1, \"text\": \"First text\"}\n{\"id\": 2, \"text\": \"Second text\"}\n";
+		BatchInsertResult firstResult = new BatchInsertResult();
+		firstResult.addInserted();
+
+		Mockito.when(mesService.postMessages(any(List.class))).thenReturn(firstResult)
+				.thenThrow(new IllegalStateException("Text of exception"));
+		int batchSize = (int) ReflectionTestUtils.getField(mesCont, "batchSize");
+		ReflectionTestUtils.setField(mesCont, "batchSize", 1);
+		ResponseEntity<String> actualResponseEntity;
+		try {
+			actualResponseEntity = mesCont
+					.postMessages(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+		} finally {
+			ReflectionTestUtils.setField(mesCont, "batchSize", batchSize);
+		}
+
+		assertThat(actualResponseEntity.getBody()).contains("Text of exception")
+				.contains("Posted new messages count: 1\n");
+		assertThat(actualResponseEntity.getStatusCode()).describedAs("HttpStatus is not equeal to the expected one")
+				.isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
+	/**
+	 * Case for testing a postMessages(InputStream body) method which is posting a
+	 * batch of new MessageEntity objects to the database.<br>
+	 * In this test case is tested case when the body is not a valid JSON.
+	 * <p>
+	 * Expected response is HttpStatus.BadRequest.
+	 */
+	@Test
+	public void postMappingMessagesWithMalformedBodyNegativeTest() {
+		String body = "[{\"id\": 1, \"text\": ";
+
+		ResponseEntity<String> actualResponseEntity = mesCont
+				.postMessages(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(actualResponseEntity.getBody()).contains("Unable to read a batch of messages.");
+		assertThat(actualResponseEntity.getStatusCode()).describedAs("HttpStatus is not equeal to the expected one")
+				.isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
 	// DeleteMapping tests
 	/**
 	 * Case to test the deleteMessage(int id) method which is designed to delete an
@@ -432,7 +1008,7 @@ public class MessageControllerTest {
 
 		int idOfMessage = 1;
 
-		Mockito.when(mesService.checkMessageIfExixting(idOfMessage)).thenReturn(true);
+		Mockito.when(mesService.deleteMessageIfExisting(idOfMessage)).thenReturn(true);
 		String expectedResponseBody = ("Message with id " + idOfMessage + " was deleted successfully :\n");
 
 		ResponseEntity<String> actualResponse = mesCont.deleteMessage(idOfMessage);
@@ -455,7 +1031,7 @@ public class MessageControllerTest {
 	public void deleteUnexistingMessageNegativeTest() {
 		int idOfMessage = 1;
 
-		Mockito.when(mesService.checkMessageIfExixting(idOfMessage)).thenReturn(false);
+		Mockito.when(mesService.deleteMessageIfExisting(idOfMessage)).thenReturn(false);
 		String expectedResponseBody = ("Unable to delete a message with ID " + idOfMessage
 				+ " since such message is not existing.\n");
 
@@ -478,7 +1054,7 @@ public class MessageControllerTest {
 	public void deleteMessageThrowsCannotCreateConnectionExceptionNegativeTest() {
 		int idOfMessage = 1;
 
-		Mockito.when(mesService.checkMessageIfExixting(idOfMessage))
+		Mockito.when(mesService.deleteMessageIfExisting(idOfMessage))
 				.thenThrow(new CannotCreateTransactionException(null));
 
 		ResponseEntity<String> actualResponse = mesCont.deleteMessage(idOfMessage);
@@ -486,6 +1062,53 @@ public class MessageControllerTest {
 		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
 	}
 
+	/**
+	 * Case to test the postMessage(int id, String text) and deleteMessage(int id)
+	 * methods with enabled MessageWriteJournal.<br>
+	 * In this test case is tested case when there are troubles with the database
+	 * connection, and the case when the journal has pending writes.
+	 * <p>
+	 * Expected response is HttpStatus.ACCEPTED and the writes appended to the
+	 * journal.
+	 */
+	@Test
+	public void writesJournaledWhenDatabaseIsNotAvailablePositiveTest() {
+		Mockito.when(writeJournal.isEnabled()).thenReturn(true);
+		Mockito.when(mesService.postMessageIfAbsent(1, "Some text", 1))
+				.thenThrow(new CannotCreateTransactionException(null));
+
+		ResponseEntity<String> actualResponse = mesCont.postMessage(1, "Some text");
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+		Mockito.verify(writeJournal).append(Operation.POST, 1, "Some text", 1);
+
+		Mockito.when(writeJournal.hasPendingWrites()).thenReturn(true);
+
+		assertThat(mesCont.deleteMessage(1).getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+		Mockito.verify(writeJournal).append(Operation.DELETE, 1, null, 1);
+		Mockito.verify(mesService, Mockito.never()).deleteMessageIfExisting(1);
+	}
+
+	/**
+	 * Case to test the postMessages(InputStream body) method while
+	 * MessageWriteJournal has pending writes.
+	 * <p>
+	 * Expected response is HttpStatus.SERVICE_UNAVAILABLE, while the batch is not
+	 * posted before the journaled writes.
+	 */
+	@Test
+	public void postMappingMessagesWhileJournalHasPendingWritesNegativeTest() {
+		Mockito.when(writeJournal.hasPendingWrites()).thenReturn(true);
+		String body = "[{\"id\": 1, \"text\": \"Some text\"}]";
+
+		ResponseEntity<String> actualResponse = mesCont
+				.postMessages(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(actualResponse.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		Mockito.verify(mesService, Mockito.never()).postMessages(any());
+		Mockito.verify(writeJournal, Mockito.never()).append(any(), Mockito.anyLong(), any(), Mockito.anyLong());
+	}
+
 //	@Test
 //	public void deleteMessageLoggerPositiveTest() {
 //
@@ -0,0 +1,202 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.demo.bl.MessageJournalReplayer;
+import com.example.demo.bl.MessageServiceInterface;
+import com.example.demo.bl.MessageWriteJournal;
+import com.example.demo.bl.MessageWriteJournal.Operation;
+import com.example.demo.dl.MessageEntity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * This class containing a methods designed to test the replay of the writes
+ * journaled by MessageWriteJournal to a mocked MessageServiceInterface: their
+ * order, batches, the replay write by write after a constraint violation and
+ * the stop of the replay without the database.
+ */
+public class MessageJournalReplayerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MessageWriteJournal journal;
+
+	private MessageServiceInterface messageService;
+
+	private PlatformTransactionManager transactionManager;
+
+	private MessageJournalReplayer replayer;
+
+	private SimpleMeterRegistry registry;
+
+	@Before
+	public void setup() throws IOException {
+		journal = new MessageWriteJournal(true, folder.getRoot().getPath(), 1024 * 1024, false);
+		journal.open();
+		messageService = Mockito.mock(MessageServiceInterface.class);
+		transactionManager = Mockito.mock(PlatformTransactionManager.class);
+		Mockito.when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+		replayer = new MessageJournalReplayer();
+		ReflectionTestUtils.setField(replayer, "journal", journal);
+		ReflectionTestUtils.setField(replayer, "messageService", messageService);
+		ReflectionTestUtils.setField(replayer, "transactionManager", transactionManager);
+		ReflectionTestUtils.setField(replayer, "batchSize", 500);
+		registry = new SimpleMeterRegistry();
+		replayer.bindTo(registry);
+	}
+
+	@After
+	public void clean() {
+		journal.close();
+	}
+
+	private double getReplayedCount(String result) {
+		return registry.get("messages.journal.replayed").tag("result", result).functionCounter().count();
+	}
+
+	/**
+	 * Case for testing the replay of writes of different operations.
+	 * <p>
+	 * Expected result is writes replayed in order of their appending in a single
+	 * transaction, and no pending writes left.
+	 */
+	@Test
+	public void replayInOrderOfAppendingPositiveTest() {
+		journal.append(Operation.POST, 1, "Text of message", 2);
+		journal.append(Operation.PUT, 1, "Changed text of message", 1);
+		journal.append(Operation.DELETE, 1, null, 1);
+		Mockito.when(messageService.postMessageIfAbsent(1, "Text of message", 2)).thenReturn(new MessageEntity());
+		Mockito.when(messageService.updateMessageText(1, "Changed text of message", null))
+				.thenReturn(new MessageEntity());
+		Mockito.when(messageService.deleteMessageIfExisting(1)).thenReturn(true);
+
+		assertThat(replayer.replay()).isEqualTo(3);
+
+		InOrder inOrder = Mockito.inOrder(messageService);
+		inOrder.verify(messageService).postMessageIfAbsent(1, "Text of message", 2);
+		inOrder.verify(messageService).updateMessageText(1, "Changed text of message", null);
+		inOrder.verify(messageService).deleteMessageIfExisting(1);
+		Mockito.verify(transactionManager).commit(any());
+		assertThat(journal.hasPendingWrites()).isFalse();
+		assertThat(getReplayedCount("applied")).isEqualTo(3);
+	}
+
+	/**
+	 * Case for testing the replay of more writes than the size of a batch.
+	 * <p>
+	 * Expected result is every batch replayed in its own transaction.
+	 */
+	@Test
+	public void replayInBatchesPositiveTest() {
+		ReflectionTestUtils.setField(replayer, "batchSize", 2);
+		for (int id = 1; id <= 5; id++) {
+			journal.append(Operation.POST, id, "Text of message " + id, 1);
+		}
+		Mockito.when(messageService.postMessageIfAbsent(Mockito.anyInt(), any(), Mockito.anyInt()))
+				.thenReturn(new MessageEntity());
+
+		assertThat(replayer.replay()).isEqualTo(5);
+
+		Mockito.verify(transactionManager, Mockito.times(3)).getTransaction(any());
+		Mockito.verify(transactionManager, Mockito.times(3)).commit(any());
+		assertThat(journal.hasPendingWrites()).isFalse();
+	}
+
+	/**
+	 * Case for testing the replay of a batch with a write violating an integrity
+	 * constraint.
+	 * <p>
+	 * Expected result is the batch rolled back and replayed write by write, the
+	 * violating write counted as failed and flagged as replayed, so it does not
+	 * block the journal.
+	 */
+	@Test
+	public void replayOneByOneAfterIntegrityViolationNegativeTest() {
+		journal.append(Operation.POST, 1, "Text of message", 1);
+		journal.append(Operation.POST, 2, "Too long text of message", 1);
+		journal.append(Operation.POST, 3, "Text of message", 1);
+		Mockito.when(messageService.postMessageIfAbsent(Mockito.anyInt(), any(), Mockito.anyInt()))
+				.thenReturn(new MessageEntity());
+		Mockito.when(messageService.postMessageIfAbsent(2, "Too long text of message", 1))
+				.thenThrow(new DataIntegrityViolationException("Value too long"));
+
+		assertThat(replayer.replay()).isEqualTo(3);
+
+		Mockito.verify(transactionManager).rollback(any());
+		Mockito.verify(messageService, Mockito.times(2)).postMessageIfAbsent(1, "Text of message", 1);
+		Mockito.verify(messageService, Mockito.times(1)).postMessageIfAbsent(3, "Text of message", 1);
+		assertThat(journal.hasPendingWrites()).isFalse();
+		assertThat(getReplayedCount("applied")).isEqualTo(2);
+		assertThat(getReplayedCount("failed")).isEqualTo(1);
+	}
+
+	/**
+	 * Case for testing the replay of a post of an occupied ID and a delete of a
+	 * missing message entity.
+	 * <p>
+	 * Expected result is both writes counted as skipped and flagged as replayed.
+	 */
+	@Test
+	public void replaySkippedWritesPositiveTest() {
+		journal.append(Operation.POST, 1, "Text of message", 1);
+		journal.append(Operation.DELETE, 2, null, 1);
+
+		assertThat(replayer.replay()).isEqualTo(2);
+
+		assertThat(journal.hasPendingWrites()).isFalse();
+		assertThat(getReplayedCount("applied")).isEqualTo(0);
+		assertThat(getReplayedCount("skipped")).isEqualTo(2);
+	}
+
+	/**
+	 * Case for testing the replay when the database becomes unavailable in the
+	 * middle of a batch.
+	 * <p>
+	 * Expected result is the replay stopped with all writes of the batch left
+	 * pending, and replayed in the same order by the next replay.
+	 */
+	@Test
+	public void replayStoppedWithoutDatabaseNegativeTest() {
+		journal.append(Operation.POST, 1, "Text of message", 1);
+		journal.append(Operation.POST, 2, "Text of message", 1);
+		Mockito.when(messageService.postMessageIfAbsent(1, "Text of message", 1)).thenReturn(new MessageEntity());
+		Mockito.when(messageService.postMessageIfAbsent(2, "Text of message", 1))
+				.thenThrow(new CannotCreateTransactionException("Connection refused"))
+				.thenReturn(new MessageEntity());
+
+		assertThat(replayer.replay()).isEqualTo(0);
+
+		assertThat(journal.getPendingCount()).isEqualTo(2);
+		assertThat(getReplayedCount("applied")).isEqualTo(0);
+
+		assertThat(replayer.replay()).isEqualTo(2);
+
+		InOrder inOrder = Mockito.inOrder(messageService);
+		inOrder.verify(messageService).postMessageIfAbsent(1, "Text of message", 1);
+		inOrder.verify(messageService).postMessageIfAbsent(2, "Text of message", 1);
+		inOrder.verify(messageService).postMessageIfAbsent(1, "Text of message", 1);
+		inOrder.verify(messageService).postMessageIfAbsent(2, "Text of message", 1);
+		assertThat(journal.hasPendingWrites()).isFalse();
+		assertThat(getReplayedCount("applied")).isEqualTo(2);
+	}
+
+}
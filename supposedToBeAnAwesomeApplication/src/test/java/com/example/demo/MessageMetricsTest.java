@@ -0,0 +1,170 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcMetricsFilter;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.example.demo.bl.MessageCache;
+import com.example.demo.bl.MessageCacheMetrics;
+import com.example.demo.bl.MessageLoadCoalescer;
+import com.example.demo.bl.MessageService;
+import com.example.demo.dl.MessageEntity;
+import com.example.demo.dl.MessageRepository;
+import com.example.demo.dl.RepositoryMetricsPostProcessor;
+import com.example.demo.sl.MessageController;
+import com.example.demo.sl.MessagerControllerInterface;
+import com.example.demo.sl.MessageWebMvcTagsProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * This class containing a methods designed to test the meters of the
+ * application on SimpleMeterRegistry: tags of http.server.requests timers added
+ * by MessageWebMvcTagsProvider, the messages.repository timer of
+ * RepositoryMetricsPostProcessor and the cache meters of MessageCacheMetrics.
+ */
+public class MessageMetricsTest {
+
+	private SimpleMeterRegistry registry;
+
+	@Before
+	public void setup() {
+		registry = new SimpleMeterRegistry();
+	}
+
+	private MessageEntity createMessageEntity(long id) {
+		MessageEntity message = new MessageEntity();
+		message.setMesId(id);
+		message.setGrId(1L);
+		message.setText("Text of message " + id);
+		message.setDate();
+		return message;
+	}
+
+	private long countRequests(String status, String outcome) {
+		return registry.get("http.server.requests").tag("uri", MessagerControllerInterface.MESSAGE_PATH)
+				.tag("status", status).tag("outcome", outcome).timer().count();
+	}
+
+	/**
+	 * Case for testing the tags of http.server.requests timers recorded for
+	 * requests handled by MessageController.getMessageById(int id) method.
+	 * <p>
+	 * Expected result is the default tags of Spring Boot, with
+	 * DB_CONNECTION_FAILURE outcome for a request failed because of troubles
+	 * with the database connection.
+	 */
+	@Test
+	public void httpServerRequestsTaggedWithOutcomeTest() throws Exception {
+		MessageService messageService = Mockito.mock(MessageService.class);
+		Mockito.when(messageService.appendDataFromMessageEntity(any(), any(StringBuilder.class)))
+				.thenAnswer(invocation -> invocation.<StringBuilder>getArgument(1).append("Message"));
+		Mockito.when(messageService.getMessageById(1)).thenReturn(createMessageEntity(1));
+		Mockito.when(messageService.getMessageById(2)).thenThrow(new NullPointerException());
+		Mockito.when(messageService.getMessageById(3)).thenThrow(new CannotCreateTransactionException(""));
+		MessageController messageController = new MessageController();
+		ReflectionTestUtils.setField(messageController, "messageService", messageService);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(messageController)
+				.addFilters(new WebMvcMetricsFilter(registry, new MessageWebMvcTagsProvider(), "http.server.requests",
+						true))
+				.build();
+
+		mockMvc.perform(get(MessagerControllerInterface.MESSAGE_PATH, 1).accept(MediaType.TEXT_PLAIN));
+		mockMvc.perform(get(MessagerControllerInterface.MESSAGE_PATH, 2).accept(MediaType.TEXT_PLAIN));
+		mockMvc.perform(get(MessagerControllerInterface.MESSAGE_PATH, 3).accept(MediaType.TEXT_PLAIN));
+
+		assertThat(countRequests("200", "SUCCESS")).isEqualTo(1);
+		assertThat(countRequests("404", "CLIENT_ERROR")).isEqualTo(1);
+		assertThat(countRequests("500", MessageWebMvcTagsProvider.DATABASE_FAILURE_OUTCOME)).isEqualTo(1);
+		assertThat(registry.find("http.server.requests").tag("outcome", "SERVER_ERROR").timer()).isNull();
+		assertThat(registry.find("http.server.requests").tagKeys("endpoint").timer()).isNull();
+	}
+
+	/**
+	 * Case for testing the messages.repository timer of MessageRepository
+	 * wrapped by RepositoryMetricsPostProcessor.
+	 * <p>
+	 * Expected result is every call recorded with the name of the called method
+	 * and the simple name of the thrown exception, or none, and a call returning
+	 * a stream recorded once the stream is closed.
+	 */
+	@Test
+	public void repositoryCallsTimedTest() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerSingleton("meterRegistry", registry);
+		MessageRepository repository = Mockito.mock(MessageRepository.class);
+		Mockito.when(repository.existsById(1L)).thenReturn(true);
+		Mockito.when(repository.existsById(2L)).thenThrow(new CannotCreateTransactionException(""));
+		Mockito.when(repository.streamAll()).thenReturn(Stream.of(createMessageEntity(1)));
+		RepositoryMetricsPostProcessor postProcessor = new RepositoryMetricsPostProcessor(
+				beanFactory.getBeanProvider(MeterRegistry.class));
+		MessageRepository timedRepository = (MessageRepository) postProcessor
+				.postProcessAfterInitialization(repository, "messageRepository");
+
+		assertThat(timedRepository.existsById(1L)).isTrue();
+		assertThat(timedRepository.existsById(1L)).isTrue();
+		assertThatThrownBy(() -> timedRepository.existsById(2L)).isInstanceOf(CannotCreateTransactionException.class);
+
+		assertThat(registry.get(RepositoryMetricsPostProcessor.TIMER_NAME).tag("method", "existsById")
+				.tag("exception", "none").timer().count()).isEqualTo(2);
+		assertThat(registry.get(RepositoryMetricsPostProcessor.TIMER_NAME).tag("method", "existsById")
+				.tag("exception", "CannotCreateTransactionException").timer().count()).isEqualTo(1);
+
+		try (Stream<MessageEntity> messages = timedRepository.streamAll()) {
+			assertThat(messages.count()).isEqualTo(1);
+			assertThat(registry.find(RepositoryMetricsPostProcessor.TIMER_NAME).tag("method", "streamAll").timer())
+					.describedAs("The stream was recorded before it was closed.").isNull();
+		}
+		assertThat(registry.get(RepositoryMetricsPostProcessor.TIMER_NAME).tag("method", "streamAll").timer().count())
+				.isEqualTo(1);
+		assertThat(postProcessor.postProcessAfterInitialization(registry, "meterRegistry")).isSameAs(registry);
+	}
+
+	/**
+	 * Case for testing the meters of MessageCache and MessageLoadCoalescer bound
+	 * by MessageCacheMetrics.
+	 * <p>
+	 * Expected result is the meters following lookups, loads and evictions of
+	 * the cache.
+	 */
+	@Test
+	public void cacheMetersFollowCacheTest() {
+		MessageCache messageCache = new MessageCache(1, 60000);
+		MessageLoadCoalescer messageLoads = new MessageLoadCoalescer();
+		MessageCacheMetrics cacheMetrics = new MessageCacheMetrics();
+		ReflectionTestUtils.setField(cacheMetrics, "messageCache", messageCache);
+		ReflectionTestUtils.setField(cacheMetrics, "messageLoads", messageLoads);
+		cacheMetrics.bindTo(registry);
+
+		assertThat(messageCache.get(1L)).isNull();
+		long stamp = messageCache.startLoad(1L);
+		messageCache.put(1L, messageLoads.load(1L, () -> createMessageEntity(1)), stamp);
+		assertThat(messageCache.get(1L)).isNotNull();
+		messageCache.put(2L, createMessageEntity(2), messageCache.startLoad(2L));
+
+		assertThat(registry.get("cache.gets").tag("cache", "messages").tag("result", "hit").functionCounter().count())
+				.isEqualTo(1);
+		assertThat(registry.get("cache.gets").tag("cache", "messages").tag("result", "miss").functionCounter().count())
+				.isEqualTo(1);
+		assertThat(registry.get("cache.evictions").tag("cache", "messages").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("cache.size").tag("cache", "messages").gauge().value()).isEqualTo(1);
+		assertThat(registry.get("messages.loads").tag("result", "executed").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("messages.loads").tag("result", "collapsed").functionCounter().count()).isEqualTo(0);
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.example.demo.dl.MessageEntity;
+import com.example.demo.dl.MessageRepository;
+import com.example.demo.dl.MessageSchemaInitializer;
+
+/**
+ * This class containing a methods designed to test the queries and the
+ * single-statement writes of MessageRepository on the embedded database of the
+ * <i>inmemory</i> profile.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "message.search.enabled=false")
+@ActiveProfiles("inmemory")
+public class MessageRepositoryTest {
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	@Autowired
+	private MessageSchemaInitializer schemaInitializer;
+
+	private MessageEntity createMessageEntity(long id) {
+		MessageEntity message = new MessageEntity();
+		message.setMesId(id);
+		message.setText("Text of message");
+		message.setGrId(1L);
+		message.setDate();
+		return message;
+	}
+
+	/**
+	 * Case for testing loading of a saved and then deleted message entity.
+	 * <p>
+	 * Expected result is the message entity found until it is deleted.
+	 */
+	@Test
+	public void findByIdTest() {
+		messageRepository.save(createMessageEntity(1001));
+
+		assertThat(messageRepository.findById(1001L)).isPresent();
+		assertThat(messageRepository.findById(1001L).get().getVersion()).isEqualTo(0L);
+
+		messageRepository.deleteById(1001L);
+
+		assertThat(messageRepository.findById(1001L)).isNotPresent();
+	}
+
+	/**
+	 * Case for testing existence checks.
+	 * <p>
+	 * Expected result is that the check follows the changes of the messages
+	 * table.
+	 */
+	@Test
+	public void existsByIdTest() {
+		assertThat(messageRepository.existsById(1002L)).isFalse();
+
+		messageRepository.save(createMessageEntity(1002));
+
+		assertThat(messageRepository.existsById(1002L)).isTrue();
+
+		messageRepository.deleteById(1002L);
+
+		assertThat(messageRepository.existsById(1002L)).isFalse();
+	}
+
+	/**
+	 * Case for testing the compare-and-set update of the text.
+	 * <p>
+	 * Expected result is that only the update of the current version succeeds and
+	 * increments the version, which is read by the next load.
+	 */
+	@Test
+	public void updateTextIfVersionTest() {
+		messageRepository.save(createMessageEntity(1003));
+		assertThat(messageRepository.findById(1003L).get().getVersion()).isEqualTo(0L);
+
+		assertThat(messageRepository.updateTextIfVersion(1003L, "Updated text", 0L)).isEqualTo(1);
+		assertThat(messageRepository.updateTextIfVersion(1003L, "Lost update", 0L)).isEqualTo(0);
+
+		MessageEntity message = messageRepository.findById(1003L).get();
+		assertThat(message.getText()).isEqualTo("Updated text");
+		assertThat(message.getVersion()).isEqualTo(1L);
+		assertThat(message.getGrId()).isEqualTo(1L);
+
+		messageRepository.deleteById(1003L);
+	}
+
+	/**
+	 * Case for testing the schema script on a messages table with an ID chosen by
+	 * a client ahead of messages_m_id_seq sequence.
+	 * <p>
+	 * Expected result is that the script moves the sequence past the ID, and does
+	 * not move it back when it runs again.
+	 */
+	@Test
+	public void schemaScriptMovesSequencePastChosenIDsTest() {
+		long chosenId = messageRepository.nextIdBlock() + 1000;
+		messageRepository.save(createMessageEntity(chosenId));
+
+		schemaInitializer.initializeSchema();
+
+		long nextBlock = messageRepository.nextIdBlock();
+		assertThat(nextBlock).isEqualTo(chosenId + 1);
+
+		messageRepository.deleteById(chosenId);
+		schemaInitializer.initializeSchema();
+
+		assertThat(messageRepository.nextIdBlock()).isGreaterThan(nextBlock);
+	}
+
+}
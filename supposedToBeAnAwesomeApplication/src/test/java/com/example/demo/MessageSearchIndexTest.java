@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.example.demo.bl.IndexNotReadyException;
+import com.example.demo.bl.MessageSearchIndex;
+
+/**
+ * This class containing a methods designed to test the search of messages in
+ * MessageSearchIndex by terms and prefixes, its incremental updates, including
+ * the ones made while the index is being built, and the search before the
+ * index is built.
+ */
+public class MessageSearchIndexTest {
+
+	private MessageSearchIndex index;
+
+	@Before
+	public void setup() {
+		index = new MessageSearchIndex();
+		index.startBuild();
+		index.addBuilt(3L, "Hello, World!");
+		index.addBuilt(1L, "hello there");
+		index.addBuilt(2L, "Help wanted: 100 workers");
+		index.finishBuild(true);
+	}
+
+	/**
+	 * Case for testing term, prefix and multi-term queries.
+	 * <p>
+	 * Expected result is sorted IDs of message entities containing all terms.
+	 */
+	@Test
+	public void searchTermsAndPrefixesPositiveTest() {
+		assertThat(index.search("HELLO", 10)).containsExactly(1L, 3L);
+		assertThat(index.search("hel*", 10)).containsExactly(1L, 2L, 3L);
+		assertThat(index.search("hel* wor*", 10)).containsExactly(2L, 3L);
+		assertThat(index.search("hello worker", 10)).isEmpty();
+		assertThat(index.search("100", 10)).containsExactly(2L);
+		assertThat(index.search("hel*", 2)).containsExactly(1L, 2L);
+		assertThat(index.getTermCount()).isEqualTo(7);
+	}
+
+	/**
+	 * Case for testing incremental updates of the index.
+	 * <p>
+	 * Expected result is that replaced texts and removed message entities are not
+	 * found anymore, and terms without message entities are removed.
+	 */
+	@Test
+	public void addAndRemovePositiveTest() {
+		index.add(3L, "Goodbye world");
+		index.remove(1L);
+
+		assertThat(index.search("hello", 10)).isEmpty();
+		assertThat(index.search("world", 10)).containsExactly(3L);
+		assertThat(index.getDocumentCount()).isEqualTo(2);
+		assertThat(index.getTermCount()).isEqualTo(6);
+
+		for (long id = 10; id < 5000; id++) {
+			index.add(id, "message number " + id);
+		}
+		for (long id = 10; id < 5000; id += 2) {
+			index.remove(id);
+		}
+
+		assertThat(index.search("message", 10000)).hasSize(2495);
+		assertThat(index.search("4999", 10)).containsExactly(4999L);
+		assertThat(index.search("4998", 10)).isEmpty();
+		assertThat(index.getDocumentCount()).isEqualTo(2497);
+	}
+
+	/**
+	 * Case for testing updates made while the index is being built.
+	 * <p>
+	 * Expected result is that the updates take precedence over the texts read by
+	 * the build.
+	 */
+	@Test
+	public void updatesDuringBuildPositiveTest() {
+		index.startBuild();
+		index.remove(1L);
+		index.add(2L, "new text");
+		index.addBuilt(1L, "old text");
+		index.addBuilt(2L, "old text");
+		index.addBuilt(3L, "old text");
+		index.finishBuild(true);
+
+		assertThat(index.search("old", 10)).containsExactly(3L);
+		assertThat(index.search("text", 10)).containsExactly(2L, 3L);
+	}
+
+	/**
+	 * Case for testing search before the index is built.
+	 * <p>
+	 * Expected result is thrown IndexNotReadyException.
+	 */
+	@Test(expected = IndexNotReadyException.class)
+	public void searchNotBuiltIndexNegativeTest() {
+		index.startBuild();
+		index.search("hello", 10);
+	}
+
+}
@@ -1,28 +1,49 @@
 package com.example.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 //import static org.hamcrest.CoreMatchers.any; Not the package I`m looking for.
 import static org.mockito.ArgumentMatchers.any;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.CannotCreateTransactionException;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.bl.MessageCache;
+import com.example.demo.bl.MessageIdAllocator;
+import com.example.demo.bl.MessageLoadCoalescer;
+import com.example.demo.bl.MessagePage;
+import com.example.demo.bl.MessageSearchIndex;
 import com.example.demo.bl.MessageService;
 import com.example.demo.dl.MessageEntity;
 import com.example.demo.dl.MessageRepository;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "message.search.enabled=false")
+@ActiveProfiles("inmemory")
 public class MessageServiceTest {
 
 	@MockBean
@@ -31,6 +52,30 @@ public class MessageServiceTest {
 	@Autowired
 	private MessageService mesServ;
 
+	@Autowired
+	private MessageCache messageCache;
+
+	@Autowired
+	private MessageSearchIndex searchIndex;
+
+	@Autowired
+	private MessageLoadCoalescer messageLoads;
+
+	@Autowired
+	private MessageIdAllocator idAllocator;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Actions performed before every test: removing MessageEntity objects cached
+	 * by previous tests.
+	 */
+	@Before
+	public void setup() {
+		messageCache.clear();
+	}
+
 	/**
 	 * 
 	 * Case to test the findAll() method which is returning a List of all
@@ -139,8 +184,125 @@ public class MessageServiceTest {
 
 	/**
 	 * 
-	 * Case to test the postMessage(int id, String text, int grId) method which is
-	 * designed for posting a new MessageEntity object inside the database.<br>
+	 * Case to test the findMessagesAfter(Long afterId, int limit) method which is
+	 * returning a page of MessageEntity objects following the provided ID.<br>
+	 * In this test case tested a case when there are more MessageEntity objects
+	 * than fits into the page.
+	 * <p>
+	 * Expected response is page of requested size with cursor equal to the ID of
+	 * the last MessageEntity of the page.
+	 */
+	@Test
+	public void findMessagesAfterWithNextPagePositiveTest() {
+
+		List<MessageEntity> messagesAfterCursor = new ArrayList<MessageEntity>();
+		for (long i = 11; i <= 13; i++) {
+			MessageEntity mes = new MessageEntity();
+			mes.setMesId(i);
+			messagesAfterCursor.add(mes);
+		}
+
+		Mockito.when(messageRepository.findPageAfter(10L, PageRequest.of(0, 3))).thenReturn(messagesAfterCursor);
+
+		MessagePage actualPage = mesServ.findMessagesAfter(10L, 2);
+
+		assertThat(actualPage.getMessages()).describedAs("Actual page is different from the expected one.")
+				.isEqualTo(messagesAfterCursor.subList(0, 2));
+		assertThat(actualPage.getNextCursor()).describedAs("Actual cursor is different from the expected one.")
+				.isEqualTo(12L);
+	}
+
+	/**
+	 * 
+	 * Case to test the findMessagesAfter(Long afterId, int limit) method which is
+	 * returning a page of MessageEntity objects following the provided ID.<br>
+	 * In this test case tested a case when the requested page is the last one.
+	 * <p>
+	 * Expected response is page of all remaining MessageEntity objects without
+	 * cursor.
+	 */
+	@Test
+	public void findMessagesAfterLastPagePositiveTest() {
+
+		List<MessageEntity> messagesAfterCursor = new ArrayList<MessageEntity>();
+		MessageEntity mes = new MessageEntity();
+		mes.setMesId(1L);
+		messagesAfterCursor.add(mes);
+
+		Mockito.when(messageRepository.findPageAfter(Long.MIN_VALUE, PageRequest.of(0, 11)))
+				.thenReturn(messagesAfterCursor);
+
+		MessagePage actualPage = mesServ.findMessagesAfter(null, 10);
+
+		assertThat(actualPage.getMessages()).describedAs("Actual page is different from the expected one.")
+				.isEqualTo(messagesAfterCursor);
+		assertThat(actualPage.getNextCursor()).describedAs("Actual cursor is different from the expected one.")
+				.isNull();
+	}
+
+	/**
+	 * 
+	 * Case to test the findGroupMessagesAfter(int grId, Long afterId, int limit)
+	 * method which is returning a page of MessageEntity objects of the group
+	 * following the provided ID.
+	 * <p>
+	 * Expected response is page of requested size with cursor equal to the ID of
+	 * the last MessageEntity of the page.
+	 */
+	@Test
+	public void findGroupMessagesAfterWithNextPagePositiveTest() {
+
+		List<MessageEntity> messagesAfterCursor = new ArrayList<MessageEntity>();
+		for (long i = 11; i <= 12; i++) {
+			MessageEntity mes = new MessageEntity();
+			mes.setMesId(i);
+			mes.setGrId(3L);
+			messagesAfterCursor.add(mes);
+		}
+
+		Mockito.when(messageRepository.findGroupPageAfter(3L, Long.MIN_VALUE, PageRequest.of(0, 2)))
+				.thenReturn(messagesAfterCursor);
+
+		MessagePage actualPage = mesServ.findGroupMessagesAfter(3, null, 1);
+
+		assertThat(actualPage.getMessages()).describedAs("Actual page is different from the expected one.")
+				.isEqualTo(messagesAfterCursor.subList(0, 1));
+		assertThat(actualPage.getNextCursor()).describedAs("Actual cursor is different from the expected one.")
+				.isEqualTo(11L);
+	}
+
+	/**
+	 * 
+	 * Case to test the forEachGroupMessageBetween(int grId, LocalDate from,
+	 * LocalDate to, Consumer action) method.
+	 * <p>
+	 * Expected result is the repository queried from the start of the first day
+	 * to the start of the day following the last one, and all streamed
+	 * MessageEntity objects passed to the action.
+	 */
+	@Test
+	public void forEachGroupMessageBetweenPositiveTest() {
+
+		LocalDate from = LocalDate.of(2019, 3, 1);
+		LocalDate to = LocalDate.of(2019, 3, 7);
+		MessageEntity mes = new MessageEntity();
+		mes.setMesId(1L);
+
+		Mockito.when(messageRepository.streamGroupDateRange(3L, from.atStartOfDay(),
+				LocalDate.of(2019, 3, 8).atStartOfDay())).thenReturn(Stream.of(mes));
+
+		List<MessageEntity> actualMessages = new ArrayList<MessageEntity>();
+		int actualCount = mesServ.forEachGroupMessageBetween(3, from, to, actualMessages::add);
+
+		assertThat(actualCount).isEqualTo(1);
+		assertThat(actualMessages).containsExactly(mes);
+	}
+
+	/**
+	 * 
+	 * Case to test the postMessageIfAbsent(int id, String text, int grId) method
+	 * which is designed for posting a new MessageEntity object inside the
+	 * database.<br>
 	 * In this test case tested a case provided data is proper.
 	 * <p>
 	 * Expected response is empty ArrayList of MessageEntity objects identical as
@@ -160,7 +322,10 @@ public class MessageServiceTest {
 		expectedMessage.setGrId(new Long(messageGrID));
 		expectedMessage.setDate();
 
-		MessageEntity actualMessage = mesServ.postMessage(messageID, messageText, messageGrID);
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
+				.thenReturn(1);
+
+		MessageEntity actualMessage = mesServ.postMessageIfAbsent(messageID, messageText, messageGrID);
 
 		assertThat(actualMessage.getMesId())
 				.describedAs(
@@ -183,8 +348,9 @@ public class MessageServiceTest {
 	}
 
 	/**
-	 * Case to test the postMessage(int id, String text, int grId) method which is
-	 * designed for posting a new MessageEntity object inside the database.<br>
+	 * Case to test the postMessageIfAbsent(int id, String text, int grId) method
+	 * which is designed for posting a new MessageEntity object inside the
+	 * database.<br>
 	 * In this test case is tested a case if there are troubles with the database
 	 * connection.
 	 * <p>
@@ -192,10 +358,10 @@ public class MessageServiceTest {
 	 */
 	@Test(expected = CannotCreateTransactionException.class)
 	public void postMessageNoDatabaseConnectionNegativeTest() {
-		Mockito.when(messageRepository.save(any(MessageEntity.class)))
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
 				.thenThrow(new CannotCreateTransactionException("Text of exception"));
 
-		mesServ.postMessage(1, "You shall not pass", 1);
+		mesServ.postMessageIfAbsent(1, "You shall not pass", 1);
 	}
 
 	/**
@@ -252,6 +418,276 @@ public class MessageServiceTest {
 		Mockito.verify(messageRepository).deleteById(new Long(messageID));
 	}
 
+	/**
+	 * 
+	 * Case to test the postMessageIfAbsent(int id, String text, int grId) method
+	 * which is designed for posting a new MessageEntity object inside the database
+	 * with a single statement.<br>
+	 * In this test case is tested a two cases:<br>
+	 * 1. When the ID is not occupied,<br>
+	 * 2. When the ID is already occupied.
+	 * <p>
+	 * Expected response is posted MessageEntity object in the first case and null
+	 * in the second one.
+	 */
+	@Test
+	public void postMessageIfAbsentPositiveTest() {
+
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
+				.thenReturn(1, 0);
+
+		MessageEntity actualMessage = mesServ.postMessageIfAbsent(1, "Some text", 2);
+
+		assertThat(actualMessage.getMesId())
+				.describedAs("Actual ID of posted message is different from the expected one.").isEqualTo(1L);
+		assertThat(actualMessage.getGrId())
+				.describedAs("Actual group ID of posted message is different from the expected one.").isEqualTo(2L);
+		assertThat(mesServ.postMessageIfAbsent(1, "Some text", 2))
+				.describedAs("Message with occupied ID was reported as posted.").isNull();
+		Mockito.verify(messageRepository, Mockito.never()).existsById(any(Long.class));
+	}
+
+	/**
+	 * 
+	 * Case to test the postNewMessage(String text, int grId) method which is
+	 * designed for posting a new MessageEntity object inside the database with an
+	 * ID allocated from a block reserved by the sequence.<br>
+	 * In this test case the first allocated ID is already occupied.
+	 * <p>
+	 * Expected response is posted MessageEntity object with the next ID of the
+	 * block, reserved by a single call of the sequence.
+	 */
+	@Test
+	public void postNewMessagePositiveTest() {
+
+		Mockito.when(messageRepository.nextIdBlock()).thenReturn(101L);
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
+				.thenReturn(0, 1);
+
+		MessageEntity actualMessage = mesServ.postNewMessage("Some text", 2);
+
+		assertThat(actualMessage.getMesId())
+				.describedAs("Actual ID of posted message is different from the expected one.").isEqualTo(102L);
+		assertThat(actualMessage.getGrId())
+				.describedAs("Actual group ID of posted message is different from the expected one.").isEqualTo(2L);
+		Mockito.verify(messageRepository).nextIdBlock();
+	}
+
+	/**
+	 * 
+	 * Case to test the postNewMessage(String text, int grId) method.<br>
+	 * In this test case all allocated IDs are already occupied.
+	 * <p>
+	 * Expected response is IllegalStateException thrown after
+	 * <i>message.id.max-attempts</i> allocated IDs, from two blocks of the
+	 * sequence.
+	 */
+	@Test
+	public void postNewMessageWhenAllocatedIDsOccupiedNegativeTest() {
+
+		// a new allocator, the block left by other tests is not used
+		ReflectionTestUtils.setField(mesServ, "idAllocator", new MessageIdAllocator(messageRepository, 50));
+		Mockito.when(messageRepository.nextIdBlock()).thenReturn(201L, 251L);
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
+				.thenReturn(0);
+
+		try {
+			assertThatThrownBy(() -> mesServ.postNewMessage("Some text", 2))
+					.isInstanceOf(IllegalStateException.class).hasMessageContaining("in 100 attempts");
+		} finally {
+			ReflectionTestUtils.setField(mesServ, "idAllocator", idAllocator);
+		}
+		Mockito.verify(messageRepository, Mockito.times(2)).nextIdBlock();
+		Mockito.verify(messageRepository, Mockito.times(100)).insertIfAbsent(any(Long.class), any(String.class),
+				any(Long.class), any());
+	}
+
+	/**
+	 * 
+	 * Case to test the updateMessageText(int id, String text, Long version)
+	 * method which is designed for updating the text of an existing MessageEntity
+	 * with a compare-and-set of its version.<br>
+	 * In this test case is tested a two cases:<br>
+	 * 1. When the MessageEntity has the expected version,<br>
+	 * 2. When the MessageEntity was changed meanwhile.
+	 * <p>
+	 * Expected response is the MessageEntity read back with its new version in the
+	 * first case and OptimisticLockingFailureException in the second one.
+	 */
+	@Test
+	public void updateMessageTextOfVersionPositiveTest() {
+		MessageEntity updated = new MessageEntity();
+		updated.setMesId(7L);
+		updated.setText("Some new text");
+		updated.setGrId(2L);
+		updated.setDate();
+		updated.setVersion(4L);
+
+		Mockito.when(messageRepository.updateTextIfVersion(7L, "Some new text", 3L)).thenReturn(1, 0);
+		Mockito.when(messageRepository.findById(7L)).thenReturn(Optional.of(updated));
+		Mockito.when(messageRepository.existsById(7L)).thenReturn(true);
+
+		assertThat(mesServ.updateMessageText(7, "Some new text", 3L).getVersion())
+				.describedAs("Actual version of updated message is different from the expected one.").isEqualTo(4L);
+		assertThatThrownBy(() -> mesServ.updateMessageText(7, "Some new text", 3L))
+				.isInstanceOf(OptimisticLockingFailureException.class);
+		Mockito.verify(messageRepository, Mockito.never()).updateTextIfExisting(any(Long.class), any(String.class));
+	}
+
+	/**
+	 * 
+	 * Case to test the updateMessageTextIfMatch(int id, String text, long version,
+	 * int contentHash) method which is designed for updating the text of an
+	 * existing MessageEntity read by the client before.<br>
+	 * In this test case is tested a two cases:<br>
+	 * 1. When the MessageEntity was deleted and posted again, so it has the
+	 * expected version but different content,<br>
+	 * 2. When the MessageEntity has the expected version and content.
+	 * <p>
+	 * Expected response is OptimisticLockingFailureException in the first case
+	 * and the MessageEntity with the new text in the second one.
+	 */
+	@Test
+	public void updateMessageTextIfMatchOfPostedAgainMessageNegativeTest() {
+		MessageEntity deleted = new MessageEntity();
+		deleted.setMesId(8L);
+		deleted.setText("Text of deleted message");
+		deleted.setGrId(1L);
+		deleted.setDate();
+		deleted.setVersion(0L);
+		MessageEntity postedAgain = new MessageEntity();
+		postedAgain.setMesId(8L);
+		postedAgain.setText("Text of message posted again");
+		postedAgain.setGrId(1L);
+		postedAgain.setDate();
+		postedAgain.setVersion(0L);
+		int postedAgainHash = postedAgain.getContentHash();
+
+		Mockito.when(messageRepository.findByIdForUpdate(8L)).thenReturn(Optional.of(postedAgain));
+
+		assertThatThrownBy(() -> mesServ.updateMessageTextIfMatch(8, "Lost update", 0L, deleted.getContentHash()))
+				.isInstanceOf(OptimisticLockingFailureException.class);
+		assertThat(mesServ.updateMessageTextIfMatch(8, "Some new text", 0L, postedAgainHash).getText())
+				.describedAs("Actual text of updated message is different from the expected one.")
+				.isEqualTo("Some new text");
+		assertThat(mesServ.updateMessageTextIfMatch(9, "Some new text", 0L, postedAgainHash)).isNull();
+	}
+
+	/**
+	 * 
+	 * Case to test the deleteMessageIfExisting(int id) method which is designed to
+	 * delete an existing MessageEntity with a single statement.<br>
+	 * In this test case is tested a two cases:<br>
+	 * 1. When such MessageEntity is existing,<br>
+	 * 2. When such MessageEntity isn't exists.
+	 * <p>
+	 * Expected response is boolean.true in the first case and boolean.false in
+	 * the second one.
+	 */
+	@Test
+	public void deleteMessageIfExistingPositiveTest() {
+
+		Mockito.when(messageRepository.deleteIfExisting(1L)).thenReturn(1);
+		Mockito.when(messageRepository.deleteIfExisting(2L)).thenReturn(0);
+
+		assertThat(mesServ.deleteMessageIfExisting(1)).describedAs("Existing message was not deleted.").isTrue();
+		assertThat(mesServ.deleteMessageIfExisting(2)).describedAs("Unexisting message was reported as deleted.")
+				.isFalse();
+	}
+
+	/**
+	 * Case to test the getChangeCount() method, which counts writes of message
+	 * entities.
+	 * <p>
+	 * Expected response is the count increased by successful writes only.
+	 */
+	@Test
+	public void getChangeCountAfterWritesPositiveTest() {
+
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
+				.thenReturn(1, 0);
+		Mockito.when(messageRepository.deleteIfExisting(1L)).thenReturn(1);
+		long initialCount = mesServ.getChangeCount();
+
+		mesServ.postMessageIfAbsent(1, "Some text", 1);
+		mesServ.postMessageIfAbsent(1, "Some text", 1);
+		mesServ.deleteMessageIfExisting(1);
+
+		assertThat(mesServ.getChangeCount()).describedAs("Actual count of changes is different from expected one.")
+				.isEqualTo(initialCount + 2);
+	}
+
+	/**
+	 * Case to test the searchMessages(String query, int limit) method, which finds
+	 * message entities by MessageSearchIndex kept up to date by
+	 * postMessageIfAbsent(...)
+	 * and deleteMessageIfExisting(...) methods.
+	 * <p>
+	 * Expected response is list of MessageEntity objects matching all terms of
+	 * the query, ordered by ID.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void searchMessagesAfterPostAndDeletePositiveTest() {
+		searchIndex.startBuild();
+		searchIndex.finishBuild(true);
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
+				.thenReturn(1);
+		Mockito.when(messageRepository.deleteIfExisting(1L)).thenReturn(1);
+		Mockito.when(messageRepository.findAllById(any())).thenAnswer(invocation -> {
+			List<MessageEntity> messages = new ArrayList<MessageEntity>();
+			for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+				MessageEntity message = new MessageEntity();
+				message.setMesId(id);
+				messages.add(0, message);
+			}
+			return messages;
+		});
+
+		mesServ.postMessageIfAbsent(1, "Hello, World!", 1);
+		mesServ.postMessageIfAbsent(2, "hello there", 1);
+		mesServ.postMessageIfAbsent(3, "Goodbye world", 1);
+
+		assertThat(mesServ.searchMessages("HEL*", 10)).extracting(MessageEntity::getMesId).containsExactly(1L, 2L);
+		assertThat(mesServ.searchMessages("world hello", 10)).extracting(MessageEntity::getMesId).containsExactly(1L);
+
+		mesServ.deleteMessageIfExisting(1);
+
+		assertThat(mesServ.searchMessages("wor*", 10)).extracting(MessageEntity::getMesId).containsExactly(3L);
+	}
+
+	/**
+	 * Case to test the postMessages(List&lt;MessageEntity&gt; messages) method,
+	 * which inserts the batch of message entities in one transaction.<br>
+	 * In this test case tested a case when the transaction is rolled back by the
+	 * failure of the last message of the batch.
+	 * <p>
+	 * Expected response is the exception of the failed message, while
+	 * MessageSearchIndex does not find the message persisted before it.
+	 */
+	@Test
+	public void postMessagesRolledBackNegativeTest() {
+		searchIndex.startBuild();
+		searchIndex.finishBuild(true);
+		List<MessageEntity> messages = new ArrayList<MessageEntity>();
+		MessageEntity message = new MessageEntity();
+		message.setMesId(1L);
+		message.setText("Text of rolled back message");
+		message.setGrId(1L);
+		messages.add(message);
+		// the message without ID fails on persist
+		message = new MessageEntity();
+		message.setText("Text of failed message");
+		message.setGrId(1L);
+		messages.add(message);
+
+		assertThatThrownBy(() -> mesServ.postMessages(messages))
+				.describedAs("Actual exception is different from expected one.").isInstanceOf(RuntimeException.class);
+
+		assertThat(searchIndex.search("rolled", 10))
+				.describedAs("Actual search result contains the message which was rolled back.").isEmpty();
+	}
+
 	/**
 	 * Case to test the MessageService.getMessageById(id) method which is designed to get MessageEntity object from the database.
 	 * In
@@ -300,6 +736,172 @@ public class MessageServiceTest {
 				.describedAs("Actual object returned from method is different from the expected one.").isEqualTo(null);
 	}
 
+	/**
+	 * Case to test the MessageService.getMessageById(id) method called repeatedly
+	 * for the same ID.
+	 * <p>
+	 * Expected behavior is a single call of MessageRepository.findById(id) and the
+	 * same MessageEntity object returned by every call.
+	 */
+	@Test
+	public void getMessageByIdServedFromCachePositiveTest() {
+
+		Long messageID = 1L;
+		MessageEntity expectedMessage = new MessageEntity();
+		expectedMessage.setMesId(messageID);
+
+		Mockito.when(messageRepository.findById(messageID)).thenReturn(Optional.of(expectedMessage));
+
+		mesServ.getMessageById(messageID.intValue());
+		long hitsBefore = messageCache.getHitCount();
+
+		assertThat(mesServ.getMessageById(messageID.intValue()))
+				.describedAs("Actual object returned from method is different from the expected one.")
+				.isEqualTo(expectedMessage);
+		assertThat(messageCache.getHitCount()).describedAs("Second lookup was not served from the cache.")
+				.isEqualTo(hitsBefore + 1);
+		Mockito.verify(messageRepository, Mockito.times(1)).findById(messageID);
+	}
+
+	/**
+	 * Case to test the MessageService.getMessageById(id) method called
+	 * concurrently for the same ID which is not cached.
+	 * <p>
+	 * Expected behavior is a single call of MessageRepository.findById(id) shared
+	 * by all callers, counted by MessageLoadCoalescer.
+	 */
+	@Test
+	public void getMessageByIdConcurrentCallsCoalescedPositiveTest() throws Exception {
+
+		Long messageID = 7L;
+		MessageEntity expectedMessage = new MessageEntity();
+		expectedMessage.setMesId(messageID);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Mockito.when(messageRepository.findById(messageID)).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return Optional.of(expectedMessage);
+		});
+
+		long collapsedBefore = messageLoads.getCollapsedCount();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<MessageEntity>> results = new ArrayList<Future<MessageEntity>>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> mesServ.getMessageById(messageID.intValue())));
+			}
+			for (int i = 0; i < 500 && messageLoads.getCollapsedCount() < collapsedBefore + 3; i++) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+
+			for (Future<MessageEntity> result : results) {
+				assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(expectedMessage);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(messageLoads.getCollapsedCount()).isEqualTo(collapsedBefore + 3);
+		Mockito.verify(messageRepository, Mockito.times(1)).findById(messageID);
+	}
+
+	/**
+	 * Case to test the MessageService.getMessageById(id) method whose load from
+	 * the database is racing with a change of another message entity.
+	 * <p>
+	 * Expected behavior is the loaded MessageEntity cached, since only changes of
+	 * the loaded message entity prevent it.
+	 */
+	@Test
+	public void getMessageByIdRacingWithChangeOfOtherMessagePositiveTest() throws Exception {
+
+		Long messageID = 8L;
+		MessageEntity expectedMessage = new MessageEntity();
+		expectedMessage.setMesId(messageID);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Mockito.when(messageRepository.findById(messageID)).thenAnswer(invocation -> {
+			loading.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return Optional.of(expectedMessage);
+		});
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<MessageEntity> result = executor.submit(() -> mesServ.getMessageById(messageID.intValue()));
+			assertThat(loading.await(10, TimeUnit.SECONDS)).describedAs("The load was not started.").isTrue();
+			mesServ.deleteMessage(9);
+			release.countDown();
+
+			assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(expectedMessage);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(messageCache.get(messageID)).describedAs("The loaded message entity was not cached.")
+				.isEqualTo(expectedMessage);
+	}
+
+	/**
+	 * Case to test the MessageService.getMessageById(id) method called inside a
+	 * read-write transaction, which may have changed the message entity.
+	 * <p>
+	 * Expected behavior is reading the MessageEntity from the database every
+	 * time without caching it, so the uncommitted entity is not served to other
+	 * callers.
+	 */
+	@Test
+	public void getMessageByIdInsideTransactionNotCachedPositiveTest() {
+
+		Long messageID = 10L;
+		MessageEntity uncommittedMessage = new MessageEntity();
+		uncommittedMessage.setMesId(messageID);
+
+		Mockito.when(messageRepository.findById(messageID)).thenReturn(Optional.of(uncommittedMessage));
+
+		MessageEntity actualMessage = new TransactionTemplate(transactionManager).execute(status -> {
+			mesServ.getMessageById(messageID.intValue());
+			return mesServ.getMessageById(messageID.intValue());
+		});
+
+		assertThat(actualMessage).isEqualTo(uncommittedMessage);
+		assertThat(messageCache.get(messageID)).describedAs("The uncommitted message entity was cached.").isNull();
+		Mockito.verify(messageRepository, Mockito.times(2)).findById(messageID);
+	}
+
+	/**
+	 * Case to test the MessageService.getMessageById(id) method called after the
+	 * message entity was changed by MessageService.postMessageIfAbsent(id, text,
+	 * grId).
+	 * <p>
+	 * Expected behavior is reading the MessageEntity from the database again.
+	 */
+	@Test
+	public void getMessageByIdAfterPostMessagePositiveTest() {
+
+		int messageID = 1;
+		MessageEntity oldMessage = new MessageEntity();
+		oldMessage.setMesId(new Long(messageID));
+		oldMessage.setText("Old text");
+		MessageEntity newMessage = new MessageEntity();
+		newMessage.setMesId(new Long(messageID));
+		newMessage.setText("New text");
+
+		Mockito.when(messageRepository.findById(new Long(messageID))).thenReturn(Optional.of(oldMessage),
+				Optional.of(newMessage));
+
+		Mockito.when(messageRepository.insertIfAbsent(any(Long.class), any(String.class), any(Long.class), any()))
+				.thenReturn(1);
+
+		mesServ.getMessageById(messageID);
+		mesServ.postMessageIfAbsent(messageID, "New text", 1);
+
+		assertThat(mesServ.getMessageById(messageID))
+				.describedAs("Actual object returned from method is different from the expected one.")
+				.isEqualTo(newMessage);
+		Mockito.verify(messageRepository, Mockito.times(2)).findById(new Long(messageID));
+	}
+
 	/**
 	 * Case to test the MessageService.getDataFromMessageEntity(MessageEntity)
 	 * method returning proper String
@@ -337,6 +939,35 @@ public class MessageServiceTest {
 				.isEqualTo(expectedResponseString);
 	}
 
+	/**
+	 * Case to test the MessageService.appendDataFromMessageEntity(MessageEntity,
+	 * StringBuilder) method appending data of a MessageEntity to a buffer which
+	 * already contains some text.
+	 * <p>
+	 * Expected result is the previous text of the buffer followed by the same text
+	 * as returned by getDataFromMessageEntity(MessageEntity) method.
+	 */
+	@Test
+	public void appendDataFromMessageEntityPositiveTest() {
+
+		MessageEntity message = new MessageEntity();
+
+		message.setMesId(new Long(1));
+		message.setText("Some text");
+		message.setGrId(new Long(1));
+		message.setDate();
+
+		StringBuilder buffer = new StringBuilder("Previous text\n");
+
+		mesServ.appendDataFromMessageEntity(message, buffer);
+		mesServ.appendDataFromMessageEntity(message, buffer);
+
+		String expectedDataFromMessageEntity = mesServ.getDataFromMessageEntity(message);
+		assertThat(buffer.toString())
+				.describedAs("Actual content of the buffer is different from the expected one.")
+				.isEqualTo("Previous text\n" + expectedDataFromMessageEntity + expectedDataFromMessageEntity);
+	}
+
 	/**
 	 * Case to test the MessageService.getDataFromMessageEntity(MesageEntity
 	 * message) method behavior in case of putting null object inside the method.
@@ -0,0 +1,138 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.example.demo.bl.MessageWriteJournal;
+import com.example.demo.bl.MessageWriteJournal.Entry;
+import com.example.demo.bl.MessageWriteJournal.Operation;
+
+/**
+ * This class containing a methods designed to test MessageWriteJournal on a
+ * temporary directory: appending and reading of pending writes, rotation and
+ * deletion of segments and opening of the journal left by the previous run.
+ */
+public class MessageWriteJournalTest {
+
+	private static final int SEGMENT_SIZE = 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MessageWriteJournal journal;
+
+	@Before
+	public void setup() throws IOException {
+		journal = openJournal();
+	}
+
+	@After
+	public void clean() {
+		journal.close();
+	}
+
+	private MessageWriteJournal openJournal() throws IOException {
+		MessageWriteJournal openedJournal = new MessageWriteJournal(true, folder.getRoot().getPath(), SEGMENT_SIZE,
+				false);
+		openedJournal.open();
+		return openedJournal;
+	}
+
+	private int countSegments() {
+		return folder.getRoot().list().length;
+	}
+
+	/**
+	 * Case for testing appending and reading of writes.
+	 * <p>
+	 * Expected result is writes read in order of their appending, staying pending
+	 * until they are flagged as replayed.
+	 */
+	@Test
+	public void appendAndReadPendingPositiveTest() {
+		journal.append(Operation.POST, 1, "Text of message", 2);
+		journal.append(Operation.PUT, 1, "Ünïcödé text", 2);
+		journal.append(Operation.DELETE, 1, null, 1);
+
+		List<Entry> entries = journal.readPending(2);
+
+		assertThat(entries).extracting(Entry::getOperation).containsExactly(Operation.POST, Operation.PUT);
+		assertThat(entries.get(0).getGrId()).isEqualTo(2);
+		assertThat(entries.get(1).getText()).isEqualTo("Ünïcödé text");
+		assertThat(journal.getPendingCount()).isEqualTo(3);
+
+		journal.markReplayed(entries);
+		entries = journal.readPending(10);
+
+		assertThat(entries).extracting(Entry::getOperation).containsExactly(Operation.DELETE);
+		assertThat(entries.get(0).getText()).isNull();
+		assertThat(journal.getPendingCount()).isEqualTo(1);
+	}
+
+	/**
+	 * Case for testing rotation of segments.
+	 * <p>
+	 * Expected result is that writes are read across segments and segments with
+	 * only replayed writes are deleted.
+	 */
+	@Test
+	public void segmentsRotatedAndDeletedPositiveTest() {
+		for (int id = 0; id < 100; id++) {
+			journal.append(Operation.POST, id, "Text of message " + id, 1);
+		}
+
+		assertThat(countSegments()).isGreaterThan(3);
+
+		List<Entry> entries = journal.readPending(1000);
+
+		assertThat(entries).hasSize(100);
+		assertThat(entries.get(99).getId()).isEqualTo(99);
+
+		journal.markReplayed(entries);
+
+		assertThat(countSegments()).isEqualTo(1);
+		assertThat(journal.hasPendingWrites()).isFalse();
+		assertThat(journal.readPending(1000)).isEmpty();
+	}
+
+	/**
+	 * Case for testing opening of the journal left by the previous run.
+	 * <p>
+	 * Expected result is that only writes which were not replayed are pending,
+	 * and new writes are appended after them.
+	 */
+	@Test
+	public void reopenedJournalPositiveTest() throws IOException {
+		for (int id = 0; id < 50; id++) {
+			journal.append(Operation.POST, id, "Text of message " + id, 1);
+		}
+		journal.markReplayed(journal.readPending(30));
+		journal.close();
+
+		journal = openJournal();
+		journal.append(Operation.DELETE, 50, null, 1);
+		List<Entry> entries = journal.readPending(1000);
+
+		assertThat(journal.getPendingCount()).isEqualTo(21);
+		assertThat(entries).hasSize(21);
+		assertThat(entries.get(0).getId()).isEqualTo(30);
+		assertThat(entries.get(20).getOperation()).isEqualTo(Operation.DELETE);
+
+		journal.markReplayed(entries);
+		journal.close();
+		journal = openJournal();
+
+		assertThat(journal.hasPendingWrites()).isFalse();
+		assertThat(new File(folder.getRoot().getPath()).list()).isEmpty();
+	}
+
+}